@@ -0,0 +1,97 @@
+package benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Запуск всех бенчмарков: результаты пишутся в bench/results/<время>.json и сравниваются
+// с предыдущим запуском, ухудшения больше порога выводятся как регрессии.
+// Аргумент — необязательное регулярное выражение для выбора бенчмарков.
+public class BenchmarkRunner {
+    private static final Path RESULTS_DIR = Path.of("bench", "results");
+    private static final double REGRESSION_THRESHOLD = 0.10;
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Files.createDirectories(RESULTS_DIR);
+        Optional<Path> previous = latestResults();
+        Path current = RESULTS_DIR.resolve(
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "(benchmark|manager)\\..*Benchmark")
+                .resultFormat(ResultFormatType.JSON)
+                .result(current.toString())
+                .build();
+        new Runner(options).run();
+
+        if (previous.isPresent()) {
+            compare(previous.get(), current);
+        } else {
+            System.out.println("Предыдущих результатов нет, сравнение пропущено");
+        }
+    }
+
+    private static Optional<Path> latestResults() throws IOException {
+        try (Stream<Path> files = Files.list(RESULTS_DIR)) {
+            return files.filter(path -> path.toString().endsWith(".json"))
+                    .max(Path::compareTo);
+        }
+    }
+
+    private static void compare(Path previousFile, Path currentFile) throws IOException {
+        Map<String, JsonObject> previous = readScores(previousFile);
+        Map<String, JsonObject> current = readScores(currentFile);
+
+        System.out.println("Сравнение с " + previousFile.getFileName() + ":");
+        int regressions = 0;
+        for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+            JsonObject before = previous.get(entry.getKey());
+            if (before == null) continue;
+
+            double oldScore = score(before);
+            double newScore = score(entry.getValue());
+            // Для пропускной способности больше — лучше, для среднего времени — меньше
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().get("mode").getAsString());
+            double change = (newScore - oldScore) / oldScore;
+            double loss = higherIsBetter ? -change : change;
+
+            String marker = loss > REGRESSION_THRESHOLD ? "  РЕГРЕССИЯ" : "";
+            if (!marker.isEmpty()) regressions++;
+            System.out.printf("%-80s %12.3f -> %12.3f (%+.1f%%)%s%n",
+                    entry.getKey(), oldScore, newScore, change * 100, marker);
+        }
+        System.out.println("Регрессий: " + regressions);
+    }
+
+    private static Map<String, JsonObject> readScores(Path file) throws IOException {
+        Map<String, JsonObject> scores = new HashMap<>();
+        for (JsonElement element : JsonParser.parseString(Files.readString(file)).getAsJsonArray()) {
+            JsonObject result = element.getAsJsonObject();
+            String key = result.get("benchmark").getAsString();
+            if (result.has("params")) {
+                key += " " + result.get("params");
+            }
+            scores.put(key, result);
+        }
+        return scores;
+    }
+
+    private static double score(JsonObject result) {
+        return result.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+    }
+}
@@ -0,0 +1,111 @@
+package benchmark;
+
+import manager.HttpTaskServer;
+import manager.Managers;
+import manager.TaskManager;
+import manager.TaskValidationException;
+import model.Task;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+// GET /tasks с 1000 задач через localhost: задержка полного ответа с распаковкой на клиенте.
+// Счётчики wireBytes/requests дают средний размер тела на проводе за запрос
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    private static final int PORT = 8091;
+
+    @Param({"identity", "gzip", "deflate"})
+    public String encoding;
+
+    private HttpTaskServer server;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+        public long wireBytes;
+        public long requests;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            wireBytes = 0;
+            requests = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException, TaskValidationException {
+        TaskManager manager = Managers.getDefault();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Description " + i, TaskStatus.NEW,
+                    Duration.ofMinutes(30), start.plusHours(i)));
+        }
+        server = new HttpTaskServer(manager, PORT, 0, null);
+        server.start();
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + PORT + "/tasks"))
+                .header("Accept-Encoding", encoding)
+                .GET()
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public byte[] getTasks(WireBytes counters) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        byte[] body = response.body();
+        counters.wireBytes += body.length;
+        counters.requests++;
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+        InputStream in = new ByteArrayInputStream(body);
+        switch (contentEncoding) {
+            case "gzip":
+                in = new GZIPInputStream(in);
+                break;
+            case "deflate":
+                in = new InflaterInputStream(in);
+                break;
+            default:
+                return body;
+        }
+        return in.readAllBytes();
+    }
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryHistoryManager;
+import manager.TaskManager;
+import manager.TaskValidationException;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Просмотр по id из нескольких потоков — каждый просмотр пишет в историю
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentReadBenchmark {
+    private static final int SIZE = 10000;
+
+    private TaskManager manager;
+
+    @Setup
+    public void setUp() throws TaskValidationException {
+        manager = new ConcurrentTaskManager(new InMemoryHistoryManager());
+        for (int i = 0; i < SIZE; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW, null, null));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Task getTaskSingleThread() {
+        return manager.getTask(ThreadLocalRandom.current().nextInt(SIZE) + 1).orElseThrow();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Task getTaskEightThreads() {
+        return manager.getTask(ThreadLocalRandom.current().nextInt(SIZE) + 1).orElseThrow();
+    }
+}
@@ -0,0 +1,88 @@
+package benchmark;
+
+import manager.BatchOperation;
+import manager.Durability;
+import manager.FileBackedTaskManager;
+import manager.SnapshotFormat;
+import manager.TaskValidationException;
+import model.Epic;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBackedTaskManagerBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    @Param({"CSV", "BINARY"})
+    private SnapshotFormat format;
+
+    @Param({"SYNC", "GROUP"})
+    private Durability durability;
+
+    private File file;
+    private FileBackedTaskManager manager;
+    private Epic epic;
+
+    @Setup
+    public void setUp() throws IOException, TaskValidationException {
+        file = Files.createTempFile("kanban-bench", ".snapshot").toFile();
+        manager = new FileBackedTaskManager(file, false, format);
+
+        // Пакетом, чтобы доска сохранилась один раз, а не на каждую задачу
+        List<BatchOperation> operations = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < rows; i++) {
+            operations.add(BatchOperation.create(new Task(0, "Task " + i, "Description " + i, TaskStatus.NEW,
+                    Duration.ofMinutes(30), start.plusHours(i))));
+        }
+        epic = new Epic(0, "Epic", "Description");
+        operations.add(BatchOperation.create(epic));
+        manager.applyBatch(operations);
+        manager.setDurability(durability, Duration.ofMillis(10));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    // Любое изменение в режиме снимка переписывает файл целиком; в режиме GROUP —
+    // одной фоновой записью на окно
+    @Benchmark
+    public void save() {
+        manager.updateEpic(epic);
+    }
+
+    @Benchmark
+    public FileBackedTaskManager loadFromFile() {
+        return FileBackedTaskManager.loadFromFile(file);
+    }
+}
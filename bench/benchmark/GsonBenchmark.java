@@ -0,0 +1,101 @@
+package benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import manager.GsonConfig;
+import manager.Managers;
+import manager.TaskManager;
+import manager.TaskValidationException;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonBenchmark {
+    private static final Type TASK_LIST = new TypeToken<List<Task>>() {
+    }.getType();
+
+    private final Gson gson = GsonConfig.getGson();
+    private Task task;
+    private String taskJson;
+    private List<Task> tasks;
+    private String tasksJson;
+    private TaskManager manager;
+
+    @Setup
+    public void setUp() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        task = new Task(1, "Task", "Description", TaskStatus.IN_PROGRESS, Duration.ofMinutes(30), start);
+        taskJson = gson.toJson(task);
+        tasks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(new Task(i + 1, "Task " + i, "Description " + i, TaskStatus.NEW,
+                    Duration.ofMinutes(30), start.plusHours(i)));
+        }
+        tasksJson = gson.toJson(tasks);
+        manager = Managers.getDefault();
+        for (Task item : tasks) {
+            manager.createTask(new Task(0, item.getName(), item.getDescription(), item.getStatus(),
+                    item.getDuration(), item.getStartTime()));
+        }
+    }
+
+    @Benchmark
+    public String taskToJson() {
+        return gson.toJson(task);
+    }
+
+    @Benchmark
+    public Task taskFromJson() {
+        return gson.fromJson(taskJson, Task.class);
+    }
+
+    @Benchmark
+    public String thousandTasksToJson() {
+        return gson.toJson(tasks);
+    }
+
+    // Тело GET /tasks из кэша JSON менеджера: после первого прохода — склейка готовых байтов
+    @Benchmark
+    public byte[] thousandTasksFromCache() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128 * 1024);
+        out.write('[');
+        List<Task> all = manager.getAllTasks();
+        for (int i = 0; i < all.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(manager.toJson(all.get(i)));
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Task> thousandTasksFromJson() {
+        return gson.fromJson(tasksJson, TASK_LIST);
+    }
+}
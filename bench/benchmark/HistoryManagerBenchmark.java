@@ -0,0 +1,61 @@
+package benchmark;
+
+import manager.HistoryManager;
+import manager.InMemoryHistoryManager;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryManagerBenchmark {
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private HistoryManager historyManager;
+    private Task[] tasks;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        historyManager = new InMemoryHistoryManager();
+        tasks = new Task[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new Task(i + 1, "Task " + i, "Description", TaskStatus.NEW, null, null);
+            historyManager.add(tasks[i]);
+        }
+    }
+
+    // Повторный просмотр переносит задачу в конец истории
+    @Benchmark
+    public void add() {
+        historyManager.add(tasks[next++ % size]);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Benchmark
+    public List<Task> getLastTen() {
+        return historyManager.getHistory(10);
+    }
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import manager.HttpTaskServer;
+import manager.Managers;
+import manager.TaskManager;
+import manager.TaskValidationException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Пропускная способность сервера на коротких ответах, где маршрутизация и создание обработчиков
+// заметны на фоне сериализации: одна задача, подзадачи эпика и несуществующий путь. Стоимость
+// самого разбора пути отдельно — в manager.RouterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+    @Param({"/tasks/1", "/epics/2/subtasks", "/missing"})
+    public String path;
+
+    private HttpTaskServer server;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws IOException, TaskValidationException {
+        TaskManager manager = Managers.getConcurrent();
+        manager.createTask(new Task(0, "Task", "Description", TaskStatus.NEW, null, null));
+        Epic epic = manager.createEpic(new Epic(0, "Epic", "Description"));
+        manager.createSubtask(new Subtask(0, "Subtask", "Description", TaskStatus.NEW, epic.getId(), null, null));
+        server = new HttpTaskServer(manager, 0, 0, Executors.newFixedThreadPool(2));
+        server.start();
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getPort() + path))
+                .GET()
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public int get() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
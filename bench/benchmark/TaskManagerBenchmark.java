@@ -0,0 +1,64 @@
+package benchmark;
+
+import manager.Managers;
+import manager.TaskManager;
+import manager.TaskValidationException;
+import model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskManagerBenchmark {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private TaskManager manager;
+    private int next;
+
+    @Setup
+    public void setUp() throws TaskValidationException {
+        manager = Managers.getDefault();
+        for (int i = 0; i < size; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Description", TaskStatus.NEW,
+                    Duration.ofMinutes(30), START.plusHours(i)));
+        }
+    }
+
+    // Задача занимает свободные полчаса между существующими и сразу удаляется,
+    // чтобы размер доски между вызовами не менялся
+    @Benchmark
+    public Task createTaskWithOverlapCheck() throws TaskValidationException {
+        int slot = next++ % size;
+        Task task = manager.createTask(new Task(0, "Task", "Description", TaskStatus.NEW,
+                Duration.ofMinutes(30), START.plusHours(slot).plusMinutes(30)));
+        manager.deleteTask(task.getId());
+        return task;
+    }
+
+    @Benchmark
+    public List<Task> getPrioritizedTasks() {
+        return manager.getPrioritizedTasks();
+    }
+}
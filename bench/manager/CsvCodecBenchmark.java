@@ -0,0 +1,95 @@
+package manager;
+
+import model.Task;
+import model.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TaskStatus;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// CsvCodec/CsvReader против прежних String.format и split(","). Лежит в пакете manager,
+// так как кодек пакетный
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvCodecBenchmark {
+    private static final int ROWS = 10000;
+
+    private List<Task> tasks;
+    private String csv;
+
+    @Setup
+    public void setUp() throws IOException {
+        tasks = new ArrayList<>(ROWS);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < ROWS; i++) {
+            tasks.add(new Task(i + 1, "Task " + i, "Description of task number " + i, TaskStatus.NEW,
+                    Duration.ofMinutes(30), start.plusHours(i)));
+        }
+        csv = codecWrite();
+    }
+
+    @Benchmark
+    public String legacyWrite() {
+        StringBuilder builder = new StringBuilder();
+        for (Task task : tasks) {
+            builder.append(String.format("%d,%s,%s,%s,%s,%s,%s,%s",
+                    task.getId(), "TASK", task.getName(), task.getStatus().toString(), task.getDescription(),
+                    "", String.valueOf(task.getDuration().toMinutes()), task.getStartTime().toString()))
+                    .append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public String codecWrite() throws IOException {
+        StringWriter out = new StringWriter();
+        for (Task task : tasks) {
+            CsvCodec.writeTask(out, task);
+            out.write('\n');
+        }
+        return out.toString();
+    }
+
+    @Benchmark
+    public List<Task> legacyParse() {
+        List<Task> result = new ArrayList<>(ROWS);
+        for (String line : csv.split("\n")) {
+            String[] fields = line.split(",", -1);
+            Type.valueOf(fields[1]);
+            result.add(new Task(Integer.parseInt(fields[0]), fields[2], fields[4], TaskStatus.valueOf(fields[3]),
+                    Duration.ofMinutes(Long.parseLong(fields[6])), LocalDateTime.parse(fields[7])));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Task> codecParse() throws IOException {
+        List<Task> result = new ArrayList<>(ROWS);
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        String[] fields;
+        while ((fields = reader.next()) != null) {
+            result.add(CsvCodec.parseTask(fields, 0));
+        }
+        return result;
+    }
+}
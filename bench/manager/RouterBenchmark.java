@@ -0,0 +1,72 @@
+package manager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Разбор пути запроса: таблица Router против прежней схемы — новый обработчик на запрос,
+// path.matches для /epics/{id}/subtasks и split("/") в обработчике. Лежит в пакете manager,
+// так как маршрутизатор и обработчики пакетные
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+    @Param({"/tasks/17", "/epics/3/subtasks", "/history"})
+    public String path;
+
+    private final TaskManager manager = Managers.getDefault();
+    private Router router;
+
+    @Setup
+    public void setUp() {
+        Router.Action none = (exchange, params) -> {
+        };
+        router = new Router(manager);
+        for (String resource : new String[]{"tasks", "subtasks", "epics"}) {
+            router.add("GET", "/" + resource, none)
+                    .add("GET", "/" + resource + "/{id:int}", none)
+                    .add("POST", "/" + resource, none)
+                    .add("DELETE", "/" + resource + "/{id:int}", none);
+        }
+        router.add("GET", "/epics/{id:int}/subtasks", none)
+                .add("GET", "/history", none)
+                .add("GET", "/prioritized", none)
+                .add("POST", "/batch", none);
+    }
+
+    @Benchmark
+    public int routerTable() {
+        Router.PathParams params = router.resolve("GET", path);
+        return path.length() > 9 ? params.getInt("id") : 0;
+    }
+
+    @Benchmark
+    public int perRequestHandlerAndRegex() {
+        BaseHttpHandler handler;
+        if (path.startsWith("/epics")) {
+            handler = new EpicHandler(manager);
+            if (path.matches("/epics/\\d+/subtasks")) {
+                return Integer.parseInt(path.split("/")[2]) + handler.hashCode();
+            }
+        } else if (path.startsWith("/tasks")) {
+            handler = new TaskHandler(manager);
+        } else {
+            handler = new HistoryHandler(manager);
+        }
+        String[] parts = path.split("/");
+        return (parts.length == 3 ? Integer.parseInt(parts[2]) : 0) + handler.hashCode();
+    }
+}
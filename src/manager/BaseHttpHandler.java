@@ -1,24 +1,95 @@
 package manager;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
+import model.Task;
+import model.Type;
+import util.TaskStatus;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
 
 public class BaseHttpHandler {
+    // Версии начинаются с нуля заново после перезапуска и у каждого менеджера свои, поэтому
+    // в ETag входят время запуска и экземпляр менеджера: прежние метки не совпадут с новыми
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    // Предел тела запроса после распаковки: несколько килобайт gzip разворачиваются в гигабайты
+    static final int MAX_REQUEST_BODY = 16 * 1024 * 1024;
+
     protected final Gson gson;
+    protected final TaskManager taskManager;
+    // Ответы от этого размера сжимаются, если клиент принимает gzip или deflate; < 0 — не сжимать.
+    // Обработчики общие для всех запросов, поэтому порог меняется на лету
+    private volatile int compressionThreshold = HttpTaskServer.DEFAULT_COMPRESSION_THRESHOLD;
 
-    public BaseHttpHandler() {
+    public BaseHttpHandler(TaskManager taskManager) {
         this.gson = GsonConfig.getGson();
+        this.taskManager = taskManager;
+    }
+
+    void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
     }
 
     protected void sendText(HttpExchange exchange, String text, int statusCode) throws IOException {
-        byte[] resp = text.getBytes(StandardCharsets.UTF_8);
+        sendJson(exchange, text.getBytes(StandardCharsets.UTF_8), statusCode);
+    }
+
+    protected void sendJson(HttpExchange exchange, byte[] json, int statusCode) throws IOException {
         exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
-        exchange.sendResponseHeaders(statusCode, resp.length);
-        exchange.getResponseBody().write(resp);
-        exchange.close();
+        String encoding = acceptedEncoding(exchange);
+        if (encoding == null || json.length < compressionThreshold) {
+            exchange.sendResponseHeaders(statusCode, json.length);
+            exchange.getResponseBody().write(json);
+            exchange.close();
+            return;
+        }
+        HttpCompression.markEncoded(exchange, encoding);
+        exchange.sendResponseHeaders(statusCode, 0);
+        try (OutputStream out = HttpCompression.encoder(exchange.getResponseBody(), encoding)) {
+            out.write(json);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Кодировка сжатия, которую принимает клиент, или null; ответ в любом случае зависит от
+    // Accept-Encoding, что и сообщает Vary
+    private String acceptedEncoding(HttpExchange exchange) {
+        if (compressionThreshold < 0) {
+            return null;
+        }
+        exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        return HttpCompression.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    // Поток тела ответа неизвестной длины: без сжатия заголовки уходят сразу и тело идёт
+    // chunked, со сжатием решение откладывается до порога
+    protected OutputStream openBody(HttpExchange exchange, int statusCode) throws IOException {
+        String encoding = acceptedEncoding(exchange);
+        if (encoding == null) {
+            exchange.sendResponseHeaders(statusCode, 0);
+            return exchange.getResponseBody();
+        }
+        return new HttpCompression.ThresholdOutputStream(exchange, statusCode, encoding, compressionThreshold);
+    }
+
+    protected void sendJson(HttpExchange exchange, byte[] json) throws IOException {
+        sendJson(exchange, json, 200);
     }
 
     protected void sendText(HttpExchange exchange, String text) throws IOException {
@@ -51,7 +122,169 @@ public class BaseHttpHandler {
         sendText(exchange, message, 400);
     }
 
+    protected String etag(Type... types) {
+        return etag("", types);
+    }
+
+    // Метка из версий перечисленных коллекций и дополнительной части, например версии истории
+    protected String etag(String extra, Type... types) {
+        StringBuilder etag = new StringBuilder("\"").append(EPOCH).append('-')
+                .append(Integer.toHexString(System.identityHashCode(taskManager))).append('-').append(extra);
+        for (Type type : types) {
+            etag.append(Character.toLowerCase(type.name().charAt(0))).append(taskManager.getVersion(type));
+        }
+        return etag.append('"').toString();
+    }
+
+    // Ставит ETag ответа; если клиент прислал его же в If-None-Match, сразу отвечает 304
+    // без тела — данные не запрашиваются у менеджера и не сериализуются
+    protected boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !matchesAny(ifNoneMatch, etag)) {
+            return false;
+        }
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    // If-None-Match: "a", W/"b" или * — слабые метки сравниваются как сильные, суффикс
+    // кодировки сжатого ответа отбрасывается
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || HttpCompression.stripEncoding(candidate).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Тело может прийти сжатым: Content-Encoding: gzip или deflate. Читается не больше
+    // MAX_REQUEST_BODY байт после распаковки, иначе 413
     protected String readRequestBody(HttpExchange exchange) throws IOException {
-        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        byte[] bytes;
+        try (InputStream body = HttpCompression.decoder(exchange.getRequestBody(), contentEncoding)) {
+            bytes = body.readNBytes(MAX_REQUEST_BODY + 1);
+        } catch (ZipException | EOFException e) {
+            throw new RequestBodyException("Повреждённое сжатое тело запроса: " + e.getMessage(), 400);
+        } catch (RequestBodyException e) {
+            exchange.getResponseHeaders().set("Accept-Encoding", "gzip, deflate");
+            throw e;
+        }
+        if (bytes.length > MAX_REQUEST_BODY) {
+            throw new RequestBodyException("Тело запроса больше " + MAX_REQUEST_BODY + " байт", 413);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    // ?limit=50&cursor=120&status=DONE&epicId=3&from=2024-01-01T00:00&to=2024-02-01T00:00
+    protected TaskQuery parseTaskQuery(Map<String, String> params) {
+        TaskQuery query = new TaskQuery();
+        try {
+            if (params.containsKey("limit")) {
+                query.setLimit(Integer.parseInt(params.get("limit")));
+            }
+            if (params.containsKey("cursor")) {
+                query.setCursor(Integer.parseInt(params.get("cursor")));
+            }
+            if (params.containsKey("status")) {
+                query.setStatus(TaskStatus.valueOf(params.get("status")));
+            }
+            if (params.containsKey("epicId")) {
+                query.setEpicId(Integer.parseInt(params.get("epicId")));
+            }
+            if (params.containsKey("from")) {
+                query.setFrom(LocalDateTime.parse(params.get("from")));
+            }
+            if (params.containsKey("to")) {
+                query.setTo(LocalDateTime.parse(params.get("to")));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Неверные параметры запроса: " + e.getMessage(), e);
+        }
+        return query;
+    }
+
+    // Полная страница — возможно, есть следующая: её курсор передаётся в заголовке X-Next-Cursor
+    protected void sendPage(HttpExchange exchange, List<? extends Task> page, TaskQuery query, String fields)
+            throws IOException {
+        if (!page.isEmpty() && page.size() == query.getLimit()) {
+            exchange.getResponseHeaders().add("X-Next-Cursor",
+                    String.valueOf(page.get(page.size() - 1).getId()));
+        }
+        sendJsonArray(exchange, page, fields);
+    }
+
+    protected void sendJsonArray(HttpExchange exchange, List<? extends Task> items) throws IOException {
+        sendJsonArray(exchange, items, null);
+    }
+
+    // Список пишется прямо в тело ответа с chunked-кодированием, без промежуточной строки
+    // и массива байт со всем ответом. Полные задачи склеиваются из готового JSON менеджера;
+    // fields=id,name,status — в ответ попадают только перечисленные поля, через JsonWriter
+    protected void sendJsonArray(HttpExchange exchange, List<? extends Task> items, String fields)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        OutputStream body = openBody(exchange, 200);
+        if (fields == null || fields.isEmpty()) {
+            try (OutputStream out = new BufferedOutputStream(body)) {
+                out.write('[');
+                for (int i = 0; i < items.size(); i++) {
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    out.write(taskManager.toJson(items.get(i)));
+                }
+                out.write(']');
+            } finally {
+                exchange.close();
+            }
+            return;
+        }
+
+        String[] names = fields.split(",");
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(body, StandardCharsets.UTF_8)))) {
+            writer.beginArray();
+            for (Task item : items) {
+                gson.toJson(project(item, names), writer);
+            }
+            writer.endArray();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JsonObject project(Task item, String[] names) {
+        JsonObject source = gson.toJsonTree(item).getAsJsonObject();
+        JsonObject projected = new JsonObject();
+        for (String name : names) {
+            if (source.has(name)) {
+                projected.add(name, source.get(name));
+            }
+        }
+        return projected;
     }
-}
\ No newline at end of file
+}
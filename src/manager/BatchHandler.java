@@ -0,0 +1,74 @@
+package manager;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+class BatchHandler extends BaseHttpHandler {
+    public BatchHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    // POST /batch: [{"action":"CREATE","type":"TASK","task":{...}}, {"action":"DELETE","type":"EPIC","id":3}]
+    // Ответ — результаты в порядке операций (null для удалений)
+    public void handlePostBatch(HttpExchange exchange) throws IOException {
+        String body = readRequestBody(exchange);
+        List<BatchOperation> operations;
+        try {
+            operations = parseOperations(body);
+        } catch (RuntimeException e) {
+            sendBadRequest(exchange, "Неверный формат пакета: " + e.getMessage());
+            return;
+        }
+
+        try {
+            List<Task> results = taskManager.applyBatch(operations);
+            sendText(exchange, gson.toJson(results));
+        } catch (TaskValidationException e) {
+            sendHasInteractions(exchange, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+        }
+    }
+
+    private List<BatchOperation> parseOperations(String body) {
+        List<BatchOperation> operations = new ArrayList<>();
+        for (JsonElement element : JsonParser.parseString(body).getAsJsonArray()) {
+            JsonObject object = element.getAsJsonObject();
+            BatchOperation.Action action = BatchOperation.Action.valueOf(object.get("action").getAsString());
+            Type type = Type.valueOf(object.get("type").getAsString());
+
+            if (action == BatchOperation.Action.DELETE) {
+                operations.add(BatchOperation.delete(type, object.get("id").getAsInt()));
+                continue;
+            }
+            Task task = gson.fromJson(object.get("task"), classOf(type));
+            if (task == null) {
+                throw new IllegalArgumentException("нет данных задачи");
+            }
+            operations.add(action == BatchOperation.Action.CREATE
+                    ? BatchOperation.create(task) : BatchOperation.update(task));
+        }
+        return operations;
+    }
+
+    private static Class<? extends Task> classOf(Type type) {
+        switch (type) {
+            case EPIC:
+                return Epic.class;
+            case SUBTASK:
+                return Subtask.class;
+            default:
+                return Task.class;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.Type;
+
+// Одна операция пакета для TaskManager.applyBatch
+public class BatchOperation {
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private final Action action;
+    private final Type type;
+    private final int id;
+    private final Task task;
+
+    private BatchOperation(Action action, Type type, int id, Task task) {
+        this.action = action;
+        this.type = type;
+        this.id = id;
+        this.task = task;
+    }
+
+    public static BatchOperation create(Task task) {
+        return new BatchOperation(Action.CREATE, typeOf(task), task.getId(), task);
+    }
+
+    public static BatchOperation update(Task task) {
+        return new BatchOperation(Action.UPDATE, typeOf(task), task.getId(), task);
+    }
+
+    public static BatchOperation delete(Type type, int id) {
+        return new BatchOperation(Action.DELETE, type, id, null);
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    // Действие и тип указаны, а данные создания и изменения соответствуют типу
+    static void check(BatchOperation operation, int index) {
+        if (operation == null || operation.action == null || operation.type == null) {
+            throw new IllegalArgumentException("Операция " + index + ": не указано действие или тип");
+        }
+        if (operation.action == Action.DELETE) {
+            return;
+        }
+        Task task = operation.task;
+        boolean typeMatches = task != null && (operation.type == Type.EPIC ? task instanceof Epic
+                : operation.type == Type.SUBTASK ? task instanceof Subtask
+                : !(task instanceof Epic) && !(task instanceof Subtask));
+        if (!typeMatches) {
+            throw new IllegalArgumentException("Операция " + index + ": данные не соответствуют типу "
+                                               + operation.type);
+        }
+    }
+
+    // Выполняет операцию методами менеджера. Результат — созданная задача, переданная при
+    // изменении или null при удалении
+    Task apply(TaskManager manager) throws TaskValidationException {
+        switch (action) {
+            case CREATE:
+                switch (type) {
+                    case TASK:
+                        return manager.createTask(task);
+                    case SUBTASK:
+                        return manager.createSubtask((Subtask) task);
+                    default:
+                        return manager.createEpic((Epic) task);
+                }
+            case UPDATE:
+                switch (type) {
+                    case TASK:
+                        manager.updateTask(task);
+                        break;
+                    case SUBTASK:
+                        manager.updateSubtask((Subtask) task);
+                        break;
+                    default:
+                        manager.updateEpic((Epic) task);
+                }
+                return task;
+            default:
+                switch (type) {
+                    case TASK:
+                        manager.deleteTask(id);
+                        break;
+                    case SUBTASK:
+                        manager.deleteSubtask(id);
+                        break;
+                    default:
+                        manager.deleteEpic(id);
+                }
+                return null;
+        }
+    }
+
+    private static Type typeOf(Task task) {
+        if (task instanceof Epic) {
+            return Type.EPIC;
+        }
+        if (task instanceof Subtask) {
+            return Type.SUBTASK;
+        }
+        return Type.TASK;
+    }
+}
@@ -0,0 +1,259 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.Type;
+import util.TaskStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Компактный двоичный снимок. Заголовок фиксированной длины: магическое число "KNB2",
+// число строк в таблице и число записей (по 4 байта). Далее таблица строк (varint-длина +
+// UTF-8; индекс 0 означает null) и записи: тип, varint id, статус, индексы названия и
+// описания, varint id эпика у подзадачи, флаги и необязательные длительность в минутах
+// и начало в минутах от эпохи (секунды и наносекунды пишутся отдельно, только если есть).
+// Завершает файл CRC32 всего предшествующего содержимого.
+class BinarySnapshot {
+    private static final int MAGIC = 0x4B4E4232;
+    private static final int HEADER_SIZE = 12;
+    private static final int CHECKSUM_SIZE = 4;
+
+    private static final int HAS_DURATION = 1;
+    private static final int HAS_START = 2;
+    private static final int HAS_SUB_MINUTE = 4;
+
+    private static final Type[] TYPES = Type.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    static boolean isBinary(File file) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        }
+    }
+
+    static byte[] encode(Collection<Task> tasks, Collection<Epic> epics, Collection<Subtask> subtasks) {
+        Map<String, Integer> stringIndex = new HashMap<>();
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+
+        for (Task task : tasks) {
+            writeRecord(records, Type.TASK, task, stringIndex, strings);
+        }
+        for (Epic epic : epics) {
+            writeRecord(records, Type.EPIC, epic, stringIndex, strings);
+        }
+        for (Subtask subtask : subtasks) {
+            writeRecord(records, Type.SUBTASK, subtask, stringIndex, strings);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(stringIndex.size())
+                .putInt(tasks.size() + epics.size() + subtasks.size());
+        byte[] stringBytes = strings.toByteArray();
+        byte[] recordBytes = records.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(header.array());
+        crc.update(stringBytes);
+        crc.update(recordBytes);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(
+                HEADER_SIZE + stringBytes.length + recordBytes.length + CHECKSUM_SIZE);
+        result.writeBytes(header.array());
+        result.writeBytes(stringBytes);
+        result.writeBytes(recordBytes);
+        result.writeBytes(ByteBuffer.allocate(CHECKSUM_SIZE).putInt((int) crc.getValue()).array());
+        return result.toByteArray();
+    }
+
+    // Файл читается целиком в буфер в куче, строки декодируются один раз на уникальное значение.
+    // Не отображается в память: пока отображение живо, Windows не даёт перенести файл в .prev
+    static void read(File file, Consumer<Task> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ManagerLoadException("Двоичный снимок слишком велик: " + file);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+            buffer.flip();
+        }
+        try {
+            if (buffer.limit() < HEADER_SIZE + CHECKSUM_SIZE || buffer.getInt() != MAGIC) {
+                throw new ManagerLoadException("Файл не является двоичным снимком: " + file);
+            }
+            int end = buffer.limit() - CHECKSUM_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(end));
+            if ((int) crc.getValue() != buffer.getInt(end)) {
+                throw new ManagerLoadException("Контрольная сумма снимка не совпадает: " + file);
+            }
+            buffer.limit(end);
+            String[] strings = new String[buffer.getInt() + 1];
+            int count = buffer.getInt();
+
+            byte[] bytes = new byte[64];
+            for (int i = 1; i < strings.length; i++) {
+                int length = readVarInt(buffer);
+                if (bytes.length < length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            for (int i = 0; i < count; i++) {
+                consumer.accept(readRecord(buffer, strings));
+            }
+            if (buffer.hasRemaining()) {
+                throw new ManagerLoadException("Лишние данные после записей снимка: " + file);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new ManagerLoadException("Двоичный снимок повреждён: " + file, e);
+        }
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, Type type, Task task,
+                                    Map<String, Integer> stringIndex, ByteArrayOutputStream strings) {
+        out.write(type.ordinal());
+        writeVarLong(out, task.getId());
+        out.write(task.getStatus().ordinal());
+        writeVarLong(out, stringId(task.getName(), stringIndex, strings));
+        writeVarLong(out, stringId(task.getDescription(), stringIndex, strings));
+        if (type == Type.SUBTASK) {
+            writeVarLong(out, ((Subtask) task).getEpicId());
+        }
+
+        // Время эпика вычисляется из подзадач при загрузке и не сохраняется
+        Duration duration = type == Type.EPIC ? null : task.getDuration();
+        LocalDateTime start = type == Type.EPIC ? null : task.getStartTime();
+        int flags = 0;
+        if (duration != null) flags |= HAS_DURATION;
+        if (start != null) flags |= HAS_START;
+        if (start != null && (start.getSecond() != 0 || start.getNano() != 0)) flags |= HAS_SUB_MINUTE;
+        out.write(flags);
+
+        if (duration != null) {
+            writeVarLong(out, zigZag(duration.toMinutes()));
+        }
+        if (start != null) {
+            long epochSecond = start.toEpochSecond(ZoneOffset.UTC);
+            writeVarLong(out, zigZag(Math.floorDiv(epochSecond, 60)));
+            if ((flags & HAS_SUB_MINUTE) != 0) {
+                writeVarLong(out, Math.floorMod(epochSecond, 60) * 1_000_000_000L + start.getNano());
+            }
+        }
+    }
+
+    private static Task readRecord(ByteBuffer buffer, String[] strings) {
+        Type type = TYPES[buffer.get()];
+        int id = readVarInt(buffer);
+        TaskStatus status = STATUSES[buffer.get()];
+        String name = strings[readVarInt(buffer)];
+        String description = strings[readVarInt(buffer)];
+        int epicId = type == Type.SUBTASK ? readVarInt(buffer) : 0;
+
+        int flags = buffer.get();
+        Duration duration = null;
+        LocalDateTime start = null;
+        if ((flags & HAS_DURATION) != 0) {
+            duration = Duration.ofMinutes(unZigZag(readVarLong(buffer)));
+        }
+        if ((flags & HAS_START) != 0) {
+            long epochSecond = unZigZag(readVarLong(buffer)) * 60;
+            long nanos = 0;
+            if ((flags & HAS_SUB_MINUTE) != 0) {
+                long subMinute = readVarLong(buffer);
+                epochSecond += subMinute / 1_000_000_000L;
+                nanos = subMinute % 1_000_000_000L;
+            }
+            start = LocalDateTime.ofEpochSecond(epochSecond, (int) nanos, ZoneOffset.UTC);
+        }
+
+        switch (type) {
+            case TASK:
+                return new Task(id, name, description, status, duration, start);
+            case EPIC:
+                Epic epic = new Epic(id, name, description);
+                epic.setStatus(status);
+                return epic;
+            default:
+                return new Subtask(id, name, description, status, epicId, duration, start);
+        }
+    }
+
+    private static int stringId(String value, Map<String, Integer> stringIndex, ByteArrayOutputStream strings) {
+        if (value == null) {
+            return 0;
+        }
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = stringIndex.size() + 1;
+            stringIndex.put(value, index);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(strings, bytes.length);
+            strings.writeBytes(bytes);
+        }
+        return index;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IndexOutOfBoundsException("Слишком длинное varint-число");
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IndexOutOfBoundsException("Значение вне диапазона int: " + value);
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,178 @@
+package manager;
+
+import model.Type;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Лента изменений для GET /events. События нумеруются подряд, последние capacity хранятся в
+// кольце, чтобы переподключившийся клиент продолжил с Last-Event-ID. У подписчика своя
+// ограниченная очередь: publish её не ждёт, а переполнившего очередь подписчика отключает —
+// он переподключится и дочитает пропущенное из кольца
+public class ChangeFeed {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_SUBSCRIBER_BUFFER = 256;
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    // Коллекция очищена целиком: deleteAllTasks и подобные
+    public static final String CLEARED = "cleared";
+
+    private final Event[] ring;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private long lastId;
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер ленты должен быть положительным: " + capacity);
+        }
+        this.ring = new Event[capacity];
+    }
+
+    // Событие "<тип>.<действие>", например task.created; data — JSON задачи в UTF-8
+    public long publish(Type type, String action, byte[] data) {
+        return publish(type.name().toLowerCase() + "." + action, data);
+    }
+
+    public long publishDeleted(Type type, int id) {
+        return publish(type, DELETED, ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long publishCleared(Type type) {
+        return publish(type, CLEARED, "{}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private synchronized long publish(String name, byte[] data) {
+        Event event = new Event(++lastId, name, data);
+        ring[(int) (event.id % ring.length)] = event;
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+            Subscription subscription = subscriptions.get(i);
+            if (!subscription.queue.offer(event)) {
+                subscription.dropped = true;
+                subscriptions.remove(i);
+            }
+        }
+        return event.id;
+    }
+
+    public synchronized long getLastId() {
+        return lastId;
+    }
+
+    // События записываются в кольцо и без подписчиков: переподключившийся клиент дочитает их
+    public synchronized boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    // lastEventId < 0 — только новые события. Если события после lastEventId уже вытеснены из
+    // кольца или номер неизвестен ленте, подписка помечается как требующая полной перезагрузки
+    // (isReset)
+    public synchronized Subscription subscribe(long lastEventId, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Размер буфера подписчика должен быть положительным: " + bufferSize);
+        }
+        List<Event> replay = new ArrayList<>();
+        boolean reset = false;
+        if (lastEventId > lastId) {
+            // Номер из будущего: клиент читал другую ленту
+            reset = true;
+        } else if (lastEventId >= 0 && lastEventId < lastId) {
+            long oldest = Math.max(1, lastId - ring.length + 1);
+            if (lastEventId + 1 < oldest) {
+                reset = true;
+            } else {
+                for (long id = lastEventId + 1; id <= lastId; id++) {
+                    replay.add(ring[(int) (id % ring.length)]);
+                }
+            }
+        }
+        Subscription subscription = new Subscription(this, bufferSize + replay.size(), reset, lastId);
+        subscription.queue.addAll(replay);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    public static final class Event {
+        private final long id;
+        private final String name;
+        private final byte[] data;
+
+        private Event(long id, String name, byte[] data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + name + " " + new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static final class Subscription implements AutoCloseable {
+        private final ChangeFeed feed;
+        private final BlockingQueue<Event> queue;
+        private final boolean reset;
+        private final long startId;
+        private volatile boolean dropped;
+
+        private Subscription(ChangeFeed feed, int capacity, boolean reset, long startId) {
+            this.feed = feed;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.reset = reset;
+            this.startId = startId;
+        }
+
+        // null — за timeout событий не было
+        public Event poll(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        public Event poll() {
+            return queue.poll();
+        }
+
+        // Подписчик не успевал читать и отключён лентой; уже принятые события ещё можно дочитать
+        public boolean isDropped() {
+            return dropped;
+        }
+
+        public boolean isReset() {
+            return reset;
+        }
+
+        // Номер последнего события на момент подписки
+        public long getStartId() {
+            return startId;
+        }
+
+        @Override
+        public void close() {
+            feed.unsubscribe(this);
+        }
+    }
+}
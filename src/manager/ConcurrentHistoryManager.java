@@ -0,0 +1,133 @@
+package manager;
+
+import model.Task;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Потокобезопасная история без блокировки на пути просмотра: add только кладёт событие
+// в неблокирующую очередь, а переносом событий в упорядоченную историю занимается тот
+// поток, которому удалось захватить блокировку (tryLock), — никто не ждёт. Очередь
+// сохраняет порядок событий, а чтение и удаление сначала дочищают её, поэтому
+// getHistory видит все просмотры, завершившиеся до вызова, в порядке их записи.
+class ConcurrentHistoryManager implements HistoryManager {
+    // После стольких накопленных событий записывающий поток пробует перенести их сам
+    static final int DRAIN_THRESHOLD = 64;
+
+    private final HistoryManager delegate;
+    private final Queue<Event> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    ConcurrentHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) return;
+        buffer.offer(new Event(task, SessionHistoryManager.currentSession()));
+        if (pending.incrementAndGet() >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drain();
+            delegate.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return delegate.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        drainLock.lock();
+        try {
+            drain();
+            return delegate.getHistory(limit);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        drainLock.lock();
+        try {
+            drain();
+            return delegate.getVersion();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        drainLock.lock();
+        try {
+            drain();
+            return delegate.size();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public long estimatedMemoryBytes() {
+        drainLock.lock();
+        try {
+            drain();
+            return delegate.estimatedMemoryBytes();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Вызывается только под drainLock. Сессия события восстанавливается на время переноса,
+    // так как переносить его может другой поток
+    private void drain() {
+        String ownSession = SessionHistoryManager.currentSession();
+        try {
+            Event event;
+            while ((event = buffer.poll()) != null) {
+                pending.decrementAndGet();
+                SessionHistoryManager.setCurrentSession(event.session);
+                delegate.add(event.task);
+            }
+        } finally {
+            SessionHistoryManager.setCurrentSession(ownSession);
+        }
+    }
+
+    private static class Event {
+        final Task task;
+        final String session;
+
+        Event(Task task, String session) {
+            this.task = task;
+            this.session = session;
+        }
+    }
+}
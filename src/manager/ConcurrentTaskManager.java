@@ -0,0 +1,298 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.Type;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Потокобезопасный менеджер для HTTP-сервера с пулом потоков. Все изменения выполняются
+// под блокировкой записи, поэтому связи эпиков с подзадачами, индекс пересечений и
+// генерация id остаются согласованными; чтения идут параллельно под блокировкой чтения.
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        // Просмотр по id пишет в историю под блокировкой чтения, поэтому запись
+        // в историю не должна сериализовать параллельных читателей
+        super(new ConcurrentHistoryManager(historyManager));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        readLock.lock();
+        try {
+            return super.getAllTasks();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        readLock.lock();
+        try {
+            return super.getAllSubtasks();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        readLock.lock();
+        try {
+            return super.getAllEpics();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        readLock.lock();
+        try {
+            return super.findTasks(query);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        readLock.lock();
+        try {
+            return super.findSubtasks(query);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        readLock.lock();
+        try {
+            return super.findEpics(query);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        writeLock.lock();
+        try {
+            super.deleteAllTasks();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        writeLock.lock();
+        try {
+            super.deleteAllSubtasks();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        writeLock.lock();
+        try {
+            super.deleteAllEpics();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Task> getTask(int id) {
+        readLock.lock();
+        try {
+            return super.getTask(id);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Subtask> getSubtask(int id) {
+        readLock.lock();
+        try {
+            return super.getSubtask(id);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Epic> getEpic(int id) {
+        readLock.lock();
+        try {
+            return super.getEpic(id);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) throws TaskValidationException {
+        writeLock.lock();
+        try {
+            return super.createTask(task);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) throws TaskValidationException {
+        writeLock.lock();
+        try {
+            return super.createSubtask(subtask);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        writeLock.lock();
+        try {
+            return super.createEpic(epic);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateTask(Task task) throws TaskValidationException {
+        writeLock.lock();
+        try {
+            super.updateTask(task);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) throws TaskValidationException {
+        writeLock.lock();
+        try {
+            super.updateSubtask(subtask);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        writeLock.lock();
+        try {
+            super.updateEpic(epic);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        writeLock.lock();
+        try {
+            super.deleteTask(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        writeLock.lock();
+        try {
+            super.deleteSubtask(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        writeLock.lock();
+        try {
+            super.deleteEpic(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) throws TaskValidationException {
+        writeLock.lock();
+        try {
+            return super.applyBatch(operations);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        readLock.lock();
+        try {
+            return super.getEpicSubtasks(epicId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        readLock.lock();
+        try {
+            return super.getPrioritizedTasks();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(boolean includeEpics) {
+        readLock.lock();
+        try {
+            return super.getPrioritizedTasks(includeEpics);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public long getVersion(Type type) {
+        readLock.lock();
+        try {
+            return super.getVersion(type);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    // Сериализация под блокировкой чтения не застанет эпик посреди пересчёта агрегатов
+    @Override
+    public byte[] toJson(Task task) {
+        readLock.lock();
+        try {
+            return super.toJson(task);
+        } finally {
+            readLock.unlock();
+        }
+    }
+}
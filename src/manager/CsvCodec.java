@@ -0,0 +1,152 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.Type;
+import util.TaskStatus;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Строка задачи в CSV: id,type,name,status,description,epic,duration,startTime.
+// Поля пишутся прямо в Writer и берутся в кавычки, только если содержат запятую,
+// кавычку или перевод строки; null пишется пустым полем без кавычек.
+class CsvCodec {
+    static final int FIELDS = 8;
+
+    static void writeTask(Writer out, Task task) throws IOException {
+        Type type = task instanceof Epic ? Type.EPIC : task instanceof Subtask ? Type.SUBTASK : Type.TASK;
+        out.write(Integer.toString(task.getId()));
+        out.write(',');
+        out.write(type.name());
+        out.write(',');
+        writeField(out, task.getName());
+        out.write(',');
+        out.write(task.getStatus().name());
+        out.write(',');
+        writeField(out, task.getDescription());
+        out.write(',');
+        if (type == Type.SUBTASK) {
+            out.write(Integer.toString(((Subtask) task).getEpicId()));
+        }
+        out.write(',');
+        if (task.getDuration() != null) {
+            out.write(Long.toString(task.getDuration().toMinutes()));
+        }
+        out.write(',');
+        if (task.getStartTime() != null) {
+            out.write(task.getStartTime().toString());
+        }
+    }
+
+    static String toRow(Task task) {
+        StringWriter out = new StringWriter(64);
+        try {
+            writeTask(out, task);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    static void writeField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!value.isEmpty() && !needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    // Поля записи начиная с offset (в журнале перед строкой стоит тег операции)
+    static Task parseTask(String[] fields, int offset) {
+        if (fields.length - offset != FIELDS) {
+            throw new IllegalArgumentException("Ожидалось " + FIELDS + " полей, получено " + (fields.length - offset));
+        }
+        int id = Integer.parseInt(fields[offset]);
+        Type type = Type.valueOf(fields[offset + 1]);
+        String name = fields[offset + 2];
+        TaskStatus status = TaskStatus.valueOf(fields[offset + 3]);
+        String description = fields[offset + 4];
+        String epicId = fields[offset + 5];
+        String duration = fields[offset + 6];
+        String startTime = fields[offset + 7];
+
+        Duration parsedDuration = duration == null ? null : Duration.ofMinutes(Long.parseLong(duration));
+        LocalDateTime parsedStart = startTime == null ? null : parseDateTime(startTime);
+
+        switch (type) {
+            case TASK:
+                return new Task(id, name, description, status, parsedDuration, parsedStart);
+            case EPIC:
+                Epic epic = new Epic(id, name, description);
+                epic.setStatus(status);
+                return epic;
+            case SUBTASK:
+                return new Subtask(id, name, description, status, Integer.parseInt(epicId),
+                        parsedDuration, parsedStart);
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи");
+        }
+    }
+
+    // Быстрый разбор yyyy-MM-ddTHH:mm[:ss], как их пишет LocalDateTime.toString();
+    // остальные варианты (доли секунды, годы вне 0000-9999) — через LocalDateTime.parse
+    static LocalDateTime parseDateTime(String value) {
+        int length = value.length();
+        if ((length != 16 && length != 19) || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || value.charAt(10) != 'T' || value.charAt(13) != ':' || (length == 19 && value.charAt(16) != ':')) {
+            return LocalDateTime.parse(value);
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = length == 19 ? digits(value, 17, 2) : 0;
+        if ((year | month | day | hour | minute | second) < 0) {
+            return LocalDateTime.parse(value);
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    // -1, если встретилась не цифра
+    private static int digits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
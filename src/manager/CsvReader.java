@@ -0,0 +1,142 @@
+package manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Потоковое чтение CSV по RFC 4180: поле в кавычках может содержать запятые, переводы
+// строк и удвоенные кавычки. Пустое поле без кавычек читается как null, а "" — как пустая
+// строка. Запись без завершающего перевода строки считается оборванной и не возвращается.
+class CsvReader implements Closeable {
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder field = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean torn;
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Следующая запись или null в конце данных
+    String[] next() throws IOException {
+        if (position == limit && !fill()) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>(10);
+        while (true) {
+            int c;
+            if (buffer[position] == '"') {
+                position++;
+                field.setLength(0);
+                c = readQuoted();
+                if (c == -2) {
+                    torn = true;
+                    return null;
+                }
+                fields.add(field.toString());
+            } else {
+                c = readUnquoted(fields);
+            }
+
+            if (c == '\n') {
+                return fields.toArray(new String[0]);
+            }
+            if (c == -1) {
+                torn = true;
+                return null;
+            }
+            // После запятой всегда есть ещё одно поле, возможно пустое
+            if (position == limit && !fill()) {
+                torn = true;
+                return null;
+            }
+        }
+    }
+
+    // Поле без кавычек обычно целиком лежит в буфере: строка создаётся прямо из него
+    private int readUnquoted(List<String> fields) throws IOException {
+        int start = position;
+        while (position < limit) {
+            char c = buffer[position];
+            if (c == ',' || c == '\n') {
+                int end = position;
+                if (c == '\n' && end > start && buffer[end - 1] == '\r') {
+                    end--;
+                }
+                fields.add(end == start ? null : new String(buffer, start, end - start));
+                position++;
+                return c;
+            }
+            position++;
+        }
+
+        // Поле пересекает границу буфера
+        field.setLength(0);
+        field.append(buffer, start, position - start);
+        int c = read();
+        while (c != ',' && c != '\n' && c != -1) {
+            field.append((char) c);
+            c = read();
+        }
+        int length = field.length();
+        if (c == '\n' && length > 0 && field.charAt(length - 1) == '\r') {
+            field.setLength(length - 1);
+        }
+        fields.add(field.length() == 0 ? null : field.toString());
+        return c;
+    }
+
+    // Была ли в конце данных оборванная запись
+    boolean isTorn() {
+        return torn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Возвращает символ после закрывающей кавычки или -2, если данные кончились внутри поля
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return -2;
+            }
+            if (c == '"') {
+                c = read();
+                if (c != '"') {
+                    if (c == '\r') {
+                        c = read();
+                    }
+                    if (c != ',' && c != '\n' && c != -1) {
+                        throw new IllegalArgumentException("Лишние символы после закрывающей кавычки");
+                    }
+                    return c;
+                }
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+}
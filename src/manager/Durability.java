@@ -0,0 +1,10 @@
+package manager;
+
+// Когда изменения FileBackedTaskManager в режиме снимка попадают на диск:
+// SYNC — до возврата из каждой операции, GROUP — одной записью на все изменения,
+// пришедшие за окно после первого из них, PERIODIC — раз в окно, если были изменения
+public enum Durability {
+    SYNC,
+    GROUP,
+    PERIODIC
+}
@@ -2,61 +2,54 @@ package manager;
 
 import com.sun.net.httpserver.HttpExchange;
 import model.Epic;
+import model.Type;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
 
 class EpicHandler extends BaseHttpHandler {
-    private final TaskManager taskManager;
-
     public EpicHandler(TaskManager taskManager) {
-        this.taskManager = taskManager;
+        super(taskManager);
     }
 
     public void handleGetEpics(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-
-        if (pathParts.length == 2) {
+        String etag = etag(Type.EPIC);
+        Map<String, String> params = parseQuery(exchange);
+        if (params.isEmpty()) {
             // GET /epics
-            String response = gson.toJson(taskManager.getAllEpics());
-            sendText(exchange, response);
-        } else if (pathParts.length == 3) {
-            // GET /epics/{id}
-            try {
-                int id = Integer.parseInt(pathParts[2]);
-                Optional<Epic> epic = taskManager.getEpic(id);
-                if (epic.isPresent()) {
-                    String response = gson.toJson(epic.get());
-                    sendText(exchange, response);
-                } else {
-                    sendNotFound(exchange);
-                }
-            } catch (NumberFormatException e) {
-                sendBadRequest(exchange, "Неверный формат ID");
-            }
-        } else {
-            sendNotFound(exchange);
+            if (notModified(exchange, etag)) return;
+            sendJsonArray(exchange, taskManager.getAllEpics());
+            return;
+        }
+        // GET /epics?limit=&cursor=&status=&from=&to=&fields=
+        try {
+            TaskQuery query = parseTaskQuery(params);
+            if (notModified(exchange, etag)) return;
+            sendPage(exchange, taskManager.findEpics(query), query, params.get("fields"));
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
         }
     }
 
-    public void handleGetEpicSubtasks(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-
-        if (pathParts.length == 4 && "subtasks".equals(pathParts[3])) {
-            try {
-                int epicId = Integer.parseInt(pathParts[2]);
-                String response = gson.toJson(taskManager.getEpicSubtasks(epicId));
-                sendText(exchange, response);
-            } catch (NumberFormatException e) {
-                sendBadRequest(exchange, "Неверный формат ID эпика");
-            }
+    // GET /epics/{id}
+    public void handleGetEpic(HttpExchange exchange, int id) throws IOException {
+        String etag = etag(Type.EPIC);
+        Optional<Epic> epic = taskManager.getEpic(id);
+        if (epic.isPresent()) {
+            if (notModified(exchange, etag)) return;
+            sendJson(exchange, taskManager.toJson(epic.get()));
         } else {
             sendNotFound(exchange);
         }
     }
 
+    // GET /epics/{id}/subtasks
+    public void handleGetEpicSubtasks(HttpExchange exchange, int epicId) throws IOException {
+        if (notModified(exchange, etag(Type.SUBTASK))) return;
+        sendJsonArray(exchange, taskManager.getEpicSubtasks(epicId));
+    }
+
     public void handlePostEpic(HttpExchange exchange) throws IOException {
         String body = readRequestBody(exchange);
         try {
@@ -65,8 +58,7 @@ class EpicHandler extends BaseHttpHandler {
             if (epic.getId() == 0) {
                 // Создание нового эпика
                 Epic createdEpic = taskManager.createEpic(epic);
-                String response = gson.toJson(createdEpic);
-                sendText(exchange, response, 201);
+                sendJson(exchange, taskManager.toJson(createdEpic), 201);
             } else {
                 // Обновление существующего эпика
                 taskManager.updateEpic(epic);
@@ -77,20 +69,9 @@ class EpicHandler extends BaseHttpHandler {
         }
     }
 
-    public void handleDeleteEpic(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-
-        if (pathParts.length == 3) {
-            try {
-                int id = Integer.parseInt(pathParts[2]);
-                taskManager.deleteEpic(id);
-                sendSuccess(exchange);
-            } catch (NumberFormatException e) {
-                sendBadRequest(exchange, "Неверный формат ID");
-            }
-        } else {
-            sendNotFound(exchange);
-        }
+    // DELETE /epics/{id}
+    public void handleDeleteEpic(HttpExchange exchange, int id) throws IOException {
+        taskManager.deleteEpic(id);
+        sendSuccess(exchange);
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package manager;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// GET /events — изменения задач потоком Server-Sent Events: "event: task.created", в data JSON
+// задачи ({"id":N} для удалений). Поток держит соединение открытым, поэтому пишется в своём
+// виртуальном потоке и не занимает поток обработки запросов. Номер события передаётся как
+// "<лента>-<номер>": после перезапуска сервера старый Last-Event-ID не спутать с новым
+class EventsHandler extends BaseHttpHandler {
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final ChangeFeed feed;
+    private final String stream;
+    private final int bufferSize;
+    private final Set<Thread> writers = ConcurrentHashMap.newKeySet();
+
+    public EventsHandler(TaskManager taskManager, int bufferSize) {
+        super(taskManager);
+        this.feed = taskManager.getChangeFeed();
+        this.stream = Long.toString(System.currentTimeMillis(), 36)
+                      + Integer.toString(System.identityHashCode(feed), 36);
+        this.bufferSize = bufferSize;
+    }
+
+    // Last-Event-ID из заголовка (его шлёт EventSource при переподключении) или ?lastEventId=
+    public void handleGetEvents(HttpExchange exchange) throws IOException {
+        String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        if (lastEventId == null) {
+            lastEventId = parseQuery(exchange).get("lastEventId");
+        }
+        long resumeFrom = -1;
+        if (lastEventId != null && !lastEventId.isEmpty()) {
+            int separator = lastEventId.lastIndexOf('-');
+            try {
+                long id = Long.parseLong(lastEventId.substring(separator + 1));
+                // Номер чужой ленты заведомо больше любого своего и даёт reset
+                resumeFrom = separator > 0 && lastEventId.substring(0, separator).equals(stream) ? id : Long.MAX_VALUE;
+            } catch (NumberFormatException e) {
+                sendBadRequest(exchange, "Неверный Last-Event-ID");
+                return;
+            }
+        }
+
+        ChangeFeed.Subscription subscription = feed.subscribe(resumeFrom, bufferSize);
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream;charset=utf-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        Thread.ofVirtual().start(() -> writeEvents(exchange, subscription));
+    }
+
+    // Закрывает открытые потоки событий при остановке сервера
+    void stop() {
+        writers.forEach(Thread::interrupt);
+    }
+
+    private void writeEvents(HttpExchange exchange, ChangeFeed.Subscription subscription) {
+        writers.add(Thread.currentThread());
+        try (subscription; OutputStream out = exchange.getResponseBody()) {
+            write(out, "retry: 1000\n");
+            if (subscription.isReset()) {
+                // Пропущенного в ленте уже нет: клиенту нужно перечитать списки целиком
+                write(out, "id: " + stream + "-" + subscription.getStartId() + "\nevent: reset\ndata: {}\n\n");
+            }
+            out.flush();
+            while (!Thread.currentThread().isInterrupted()) {
+                ChangeFeed.Event event = subscription.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (event == null) {
+                    if (subscription.isDropped()) {
+                        break;
+                    }
+                    // Комментарий не виден клиенту, но выявляет оборванные соединения
+                    write(out, ": keep-alive\n\n");
+                } else {
+                    // Накопившееся отправляется одной пачкой
+                    for (; event != null; event = subscription.poll()) {
+                        write(out, "id: " + stream + "-" + event.getId() + "\nevent: " + event.getName() + "\ndata: ");
+                        out.write(event.getData());
+                        write(out, "\n\n");
+                    }
+                    if (subscription.isDropped()) {
+                        // Отставший клиент отключается и дочитывает с Last-Event-ID
+                        break;
+                    }
+                }
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // Клиент отключился или сервер останавливается
+        } finally {
+            writers.remove(Thread.currentThread());
+            exchange.close();
+        }
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
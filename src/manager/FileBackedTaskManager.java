@@ -4,59 +4,98 @@ import model.Epic;
 import model.Subtask;
 import model.Task;
 import model.Type;
-import util.TaskStatus;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
+    private static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+    // Последняя строка CSV-снимка: #end,<число записей>,<CRC32 всех предшествующих байтов>
+    private static final String TRAILER_TAG = "#end";
+    private static final int TRAILER_SEARCH_BYTES = 64;
     private final File file;
+    private final SnapshotFormat format;
+    private final TaskJournal journal;
+    // Изменяющие методы и снятие снимка синхронизированы по монитору менеджера:
+    // в режимах GROUP и PERIODIC снимок снимает фоновый поток
+    private final SnapshotWriter snapshotWriter;
+    // Записи журнала, накопленные внутри applyBatch; null вне пакета
+    private List<String> batchRecords;
+    // Длительность этапов последней загрузки в порядке выполнения
+    private final Map<String, Duration> loadTimings = new LinkedHashMap<>();
+    private boolean recoveredFromPrevious;
+    // Почему текущий снимок не прочитан; null, если он просто отсутствовал
+    private ManagerLoadException recoveryCause;
 
     public FileBackedTaskManager(File file) {
+        this(file, false);
+    }
+
+    // В режиме журнала каждая операция дописывает одну запись в <file>.journal,
+    // а снимок периодически пересобирается в фоне
+    public FileBackedTaskManager(File file, boolean journaled) {
+        this(file, journaled, SnapshotFormat.CSV);
+    }
+
+    public FileBackedTaskManager(File file, boolean journaled, SnapshotFormat format) {
         super(Managers.getDefaultHistory());
         this.file = file;
+        this.format = format;
+        this.journal = journaled ? new TaskJournal(file) : null;
+        this.snapshotWriter = new SnapshotWriter(file, this::snapshotBytes);
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        return loadFromFile(file, false);
+    }
+
+    // Снимок дальше сохраняется в том же формате, в котором был прочитан
+    public static FileBackedTaskManager loadFromFile(File file, boolean journaled) {
         try {
-            String content = Files.readString(file.toPath());
-            String[] lines = content.split("\n");
-
-            int maxId = 0;
-            for (int i = 1; i < lines.length; i++) {
-                if (lines[i].isEmpty()) continue;
-                Task task = manager.fromString(lines[i]);
-                int id = task.getId();
-                if (id > maxId) maxId = id;
-
-                if (task instanceof Epic) {
-                    manager.epics.put(id, (Epic) task);
-                } else if (task instanceof Subtask) {
-                    manager.subtasks.put(id, (Subtask) task);
-                } else {
-                    manager.tasks.put(id, task);
-                }
-            }
+            SnapshotFormat format = BinarySnapshot.isBinary(file) ? SnapshotFormat.BINARY : SnapshotFormat.CSV;
+            return loadFromFile(file, journaled, format);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки файла", e);
+        }
+    }
 
-            manager.nextId = maxId + 1;
+    public static FileBackedTaskManager loadFromFile(File file, boolean journaled, SnapshotFormat format) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, journaled, format);
+        try {
+            boolean hasJournal = TaskJournal.exists(file);
+            manager.load(file);
+            if (manager.recoveredFromPrevious && file.exists()) {
+                // Повреждённый снимок откладывается, чтобы новая запись не вытеснила им .prev
+                Files.move(file.toPath(), new File(file.getPath() + ".corrupt").toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
 
-            for (Epic epic : manager.epics.values()) {
-                List<Integer> subtaskIds = new ArrayList<>();
-                for (Subtask subtask : manager.subtasks.values()) {
-                    if (subtask.getEpicId() == epic.getId()) {
-                        subtaskIds.add(subtask.getId());
-                    }
-                }
-                epic.setSubtaskIds(subtaskIds);
-                manager.updateEpicStatus(epic.getId());
+            boolean rewrite = hasJournal || manager.recoveredFromPrevious || manager.format != manager.detectFormat();
+            if (!journaled && rewrite) {
+                // Сворачиваем журнал в снимок нужного формата, чтобы он не применился повторно
+                manager.save();
+                TaskJournal.delete(file);
             }
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка загрузки файла", e);
@@ -64,145 +103,399 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return manager;
     }
 
-    private void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write("id,type,name,status,description,epic,duration,startTime\n");
-            for (Task task : getAllTasks()) {
-                writer.write(toString(task) + "\n");
+    // Перевод снимка (вместе с его журналом) в другой формат; исходные файлы не меняются
+    public static void convert(File source, File target, SnapshotFormat format) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(target, false, format);
+        try {
+            manager.load(source);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка загрузки файла", e);
+        }
+        manager.save();
+    }
+
+    public SnapshotFormat getFormat() {
+        return format;
+    }
+
+    // Этапы: snapshot, journal, relink, index
+    public Map<String, Duration> getLoadTimings() {
+        return Collections.unmodifiableMap(loadTimings);
+    }
+
+    // Текущий снимок был повреждён или отсутствовал, и загружено предыдущее поколение
+    public boolean isRecoveredFromPrevious() {
+        return recoveredFromPrevious;
+    }
+
+    public ManagerLoadException getRecoveryCause() {
+        return recoveryCause;
+    }
+
+    private SnapshotFormat detectFormat() throws IOException {
+        return BinarySnapshot.isBinary(file) ? SnapshotFormat.BINARY : SnapshotFormat.CSV;
+    }
+
+    private void load(File source) throws IOException {
+        loadTimings.clear();
+        long phaseStart = System.nanoTime();
+        File previous = SnapshotWriter.previousFile(source);
+        if (!source.exists() && previous.exists()) {
+            // Сбой между сохранением прежнего поколения и переименованием нового
+            readSnapshot(previous, false);
+            recoveredFromPrevious = true;
+        } else if (source.exists() || !TaskJournal.exists(source)) {
+            try {
+                // Снимок без контрольной суммы допустим, только если он записан до её появления
+                readSnapshot(source, previous.exists());
+            } catch (ManagerLoadException e) {
+                if (!previous.exists()) throw e;
+                recoveryCause = e;
+                tasks.clear();
+                subtasks.clear();
+                epics.clear();
+                readSnapshot(previous, false);
+                recoveredFromPrevious = true;
+            }
+        }
+
+        phaseStart = recordPhase("snapshot", phaseStart);
+
+        for (String[] record : TaskJournal.readRecords(source)) {
+            replay(record);
+        }
+        phaseStart = recordPhase("journal", phaseStart);
+
+        // Карты упорядочены по id, поэтому максимальный id — последний ключ
+        int maxId = 0;
+        if (!tasks.isEmpty()) maxId = Math.max(maxId, tasks.lastKey());
+        if (!subtasks.isEmpty()) maxId = Math.max(maxId, subtasks.lastKey());
+        if (!epics.isEmpty()) maxId = Math.max(maxId, epics.lastKey());
+        nextId = maxId + 1;
+
+        relinkEpics();
+        phaseStart = recordPhase("relink", phaseStart);
+
+        rebuildTimeIndexes();
+        recordPhase("index", phaseStart);
+    }
+
+    private void readSnapshot(File source, boolean requireChecksum) throws IOException {
+        if (BinarySnapshot.isBinary(source)) {
+            BinarySnapshot.read(source, this::putLoaded);
+            return;
+        }
+
+        long[] trailer = readTrailer(source);
+        if (trailer == null && requireChecksum) {
+            throw new ManagerLoadException("Снимок обрезан: нет контрольной суммы в " + source);
+        }
+        if (trailer != null && checksum(source, trailer[0]) != trailer[2]) {
+            throw new ManagerLoadException("Контрольная сумма снимка не совпадает: " + source);
+        }
+
+        long records = 0;
+        try (CsvReader reader = new CsvReader(new InputStreamReader(
+                new FileInputStream(source), StandardCharsets.UTF_8))) {
+            reader.next();
+            String[] fields;
+            while ((fields = reader.next()) != null) {
+                if (TRAILER_TAG.equals(fields[0])) break;
+                if (fields.length == 1 && fields[0] == null) continue;
+                putLoaded(CsvCodec.parseTask(fields, 0));
+                records++;
+            }
+        } catch (RuntimeException e) {
+            throw new ManagerLoadException("Снимок повреждён: " + source, e);
+        }
+        if (trailer != null && records != trailer[1]) {
+            throw new ManagerLoadException("Число записей снимка не совпадает: " + source);
+        }
+    }
+
+    // {длина данных до завершающей строки, число записей, CRC32} или null, если её нет
+    private static long[] readTrailer(File source) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(source, "r")) {
+            long length = in.length();
+            int tailLength = (int) Math.min(length, TRAILER_SEARCH_BYTES);
+            byte[] tail = new byte[tailLength];
+            in.seek(length - tailLength);
+            in.readFully(tail);
+
+            String text = new String(tail, StandardCharsets.US_ASCII);
+            int start = text.lastIndexOf("\n" + TRAILER_TAG + ",") + 1;
+            if (start == 0 || !text.endsWith("\n")) {
+                return null;
             }
-            for (Epic epic : getAllEpics()) {
-                writer.write(toString(epic) + "\n");
+            String[] fields = text.substring(start, text.length() - 1).split(",");
+            if (fields.length != 3) {
+                return null;
             }
-            for (Subtask subtask : getAllSubtasks()) {
-                writer.write(toString(subtask) + "\n");
+            try {
+                return new long[]{length - tailLength + start, Long.parseLong(fields[1]), Long.parseLong(fields[2], 16)};
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static long checksum(File source, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                int read = channel.read(buffer);
+                if (read < 0) break;
+                remaining -= read;
+                crc.update(buffer.flip());
+            }
+        }
+        return crc.getValue();
+    }
+
+    private long recordPhase(String phase, long phaseStart) {
+        long now = System.nanoTime();
+        loadTimings.put(phase, Duration.ofNanos(now - phaseStart));
+        return now;
+    }
+
+    // Только для режима снимка: журнал дописывается на каждую операцию.
+    // Не вызывать из потока, удерживающего монитор менеджера
+    public void setDurability(Durability durability, Duration window) {
+        snapshotWriter.setDurability(durability, window);
+    }
+
+    // Дожидается, пока все уже выполненные изменения окажутся на диске
+    public void flush() {
+        snapshotWriter.flush();
+    }
+
+    public void close() {
+        snapshotWriter.close();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void putLoaded(Task task) {
+        if (task instanceof Epic) {
+            epics.put(task.getId(), (Epic) task);
+        } else if (task instanceof Subtask) {
+            subtasks.put(task.getId(), (Subtask) task);
+        } else {
+            tasks.put(task.getId(), task);
+        }
+    }
+
+    private void replay(String[] record) {
+        switch (record[0]) {
+            case TaskJournal.UPSERT:
+                putLoaded(CsvCodec.parseTask(record, 1));
+                break;
+            case TaskJournal.DELETE:
+                int id = Integer.parseInt(record[1]);
+                tasks.remove(id);
+                subtasks.remove(id);
+                if (epics.remove(id) != null) {
+                    subtasks.values().removeIf(subtask -> subtask.getEpicId() == id);
+                }
+                break;
+            case TaskJournal.CLEAR:
+                switch (Type.valueOf(record[1])) {
+                    case TASK:
+                        tasks.clear();
+                        break;
+                    case SUBTASK:
+                        subtasks.clear();
+                        break;
+                    case EPIC:
+                        subtasks.clear();
+                        epics.clear();
+                        break;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная запись журнала: " + record[0]);
+        }
+    }
+
+    private void persist(String journalRecord) {
+        if (batchRecords != null) {
+            batchRecords.add(journalRecord);
+            return;
+        }
+        if (journal == null) {
+            snapshotWriter.changed();
+            return;
+        }
+
+        journal.append(journalRecord);
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        int boardSize = tasks.size() + subtasks.size() + epics.size();
+        if (journal.shouldCompact(boardSize)) {
+            journal.compact(snapshotBytes());
+        }
+    }
+
+    private void persistUpsert(Task task) {
+        persist(TaskJournal.UPSERT + "," + CsvCodec.toRow(task));
+    }
+
+    private void persistDelete(int id) {
+        persist(TaskJournal.DELETE + "," + id);
+    }
+
+    private void persistClear(Type type) {
+        persist(TaskJournal.CLEAR + "," + type);
+    }
+
+    // Снимок сериализуется сразу: фоновая свёртка не должна видеть последующих изменений
+    private synchronized byte[] snapshotBytes() {
+        if (format == SnapshotFormat.BINARY) {
+            return BinarySnapshot.encode(tasks.values(), epics.values(), subtasks.values());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CheckedOutputStream checked = new CheckedOutputStream(bytes, new CRC32());
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(checked, StandardCharsets.UTF_8), 1 << 16)) {
+            out.write(HEADER);
+            out.write('\n');
+            for (Task task : tasks.values()) {
+                CsvCodec.writeTask(out, task);
+                out.write('\n');
+            }
+            for (Epic epic : epics.values()) {
+                CsvCodec.writeTask(out, epic);
+                out.write('\n');
+            }
+            for (Subtask subtask : subtasks.values()) {
+                CsvCodec.writeTask(out, subtask);
+                out.write('\n');
             }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сериализации снимка", e);
+        }
+        int records = tasks.size() + epics.size() + subtasks.size();
+        String trailer = TRAILER_TAG + "," + records + "," + Long.toHexString(checked.getChecksum().getValue()) + "\n";
+        bytes.writeBytes(trailer.getBytes(StandardCharsets.US_ASCII));
+        return bytes.toByteArray();
+    }
+
+    private void save() {
+        try {
+            SnapshotWriter.writeDurably(file, snapshotBytes());
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения файла", e);
         }
     }
 
-    private String toString(Task task) {
-        String type = task instanceof Epic ? "EPIC" :
-                task instanceof Subtask ? "SUBTASK" : "TASK";
-        String epicId = task instanceof Subtask ?
-                String.valueOf(((Subtask) task).getEpicId()) : "";
-        String duration = task.getDuration() != null ?
-                String.valueOf(task.getDuration().toMinutes()) : "";
-        String startTime = task.getStartTime() != null ?
-                task.getStartTime().toString() : "";
-
-        return String.format("%d,%s,%s,%s,%s,%s,%s,%s",
-                task.getId(),
-                type,
-                task.getName(),
-                task.getStatus().toString(),
-                task.getDescription(),
-                epicId,
-                duration,
-                startTime);
-    }
-
-    private Task fromString(String value) {
-        String[] fields = value.split(",");
-        int id = Integer.parseInt(fields[0]);
-        Type type = Type.valueOf(fields[1]);
-        String name = fields[2];
-        TaskStatus status = TaskStatus.valueOf(fields[3]);
-        String description = fields[4];
-        String epicIdStr = fields[5];
-        String durationStr = fields[6];
-        String startTimeStr = fields[7];
-
-        Duration duration = durationStr.isEmpty() ? null : Duration.ofMinutes(Long.parseLong(durationStr));
-        LocalDateTime startTime = startTimeStr.isEmpty() ? null : LocalDateTime.parse(startTimeStr);
-
-        switch (type) {
-            case TASK:
-                return new Task(id, name, description, status, duration, startTime);
-            case EPIC:
-                Epic epic = new Epic(id, name, description);
-                epic.setStatus(status);
-                return epic;
-            case SUBTASK:
-                int epicId = Integer.parseInt(epicIdStr);
-                return new Subtask(id, name, description, status, epicId, duration, startTime);
-            default:
-                throw new IllegalArgumentException("Неизвестный тип задачи");
+    // Пакет сохраняется один раз: целым снимком или одной дозаписью всех строк в журнал
+    @Override
+    public synchronized List<Task> applyBatch(List<BatchOperation> operations) throws TaskValidationException {
+        batchRecords = new ArrayList<>();
+        List<Task> results;
+        List<String> records;
+        try {
+            results = super.applyBatch(operations);
+        } finally {
+            records = batchRecords;
+            batchRecords = null;
         }
+
+        if (!records.isEmpty()) {
+            if (journal == null) {
+                snapshotWriter.changed();
+            } else {
+                journal.append(records);
+                compactIfNeeded();
+            }
+        }
+        return results;
     }
 
     @Override
-    public Task createTask(Task task) throws TaskValidationException {
+    public synchronized Task createTask(Task task) throws TaskValidationException {
         Task createdTask = super.createTask(task);
-        save();
+        persistUpsert(createdTask);
         return createdTask;
     }
 
     @Override
-    public Subtask createSubtask(Subtask subtask) throws TaskValidationException {
+    public synchronized Subtask createSubtask(Subtask subtask) throws TaskValidationException {
         Subtask createdSubtask = super.createSubtask(subtask);
-        save();
+        persistUpsert(createdSubtask);
         return createdSubtask;
     }
 
     @Override
-    public Epic createEpic(Epic epic) {
+    public synchronized Epic createEpic(Epic epic) {
         Epic createdEpic = super.createEpic(epic);
-        save();
+        persistUpsert(createdEpic);
         return createdEpic;
     }
 
     @Override
-    public void updateTask(Task task) throws TaskValidationException {
+    public synchronized void updateTask(Task task) throws TaskValidationException {
         super.updateTask(task);
-        save();
+        if (tasks.get(task.getId()) == task) {
+            persistUpsert(task);
+        }
     }
 
     @Override
-    public void updateSubtask(Subtask subtask) throws TaskValidationException {
+    public synchronized void updateSubtask(Subtask subtask) throws TaskValidationException {
         super.updateSubtask(subtask);
-        save();
+        if (subtasks.get(subtask.getId()) == subtask) {
+            persistUpsert(subtask);
+        }
     }
 
     @Override
-    public void updateEpic(Epic epic) {
+    public synchronized void updateEpic(Epic epic) {
         super.updateEpic(epic);
-        save();
+        Epic savedEpic = epics.get(epic.getId());
+        if (savedEpic != null) {
+            persistUpsert(savedEpic);
+        }
     }
 
     @Override
-    public void deleteTask(int id) {
+    public synchronized void deleteTask(int id) {
         super.deleteTask(id);
-        save();
+        persistDelete(id);
     }
 
     @Override
-    public void deleteSubtask(int id) {
+    public synchronized void deleteSubtask(int id) {
         super.deleteSubtask(id);
-        save();
+        persistDelete(id);
     }
 
     @Override
-    public void deleteEpic(int id) {
+    public synchronized void deleteEpic(int id) {
         super.deleteEpic(id);
-        save();
+        persistDelete(id);
     }
 
     @Override
-    public void deleteAllTasks() {
+    public synchronized void deleteAllTasks() {
         super.deleteAllTasks();
-        save();
+        persistClear(Type.TASK);
     }
 
     @Override
-    public void deleteAllSubtasks() {
+    public synchronized void deleteAllSubtasks() {
         super.deleteAllSubtasks();
-        save();
+        persistClear(Type.SUBTASK);
     }
 
     @Override
-    public void deleteAllEpics() {
+    public synchronized void deleteAllEpics() {
         super.deleteAllEpics();
-        save();
+        persistClear(Type.EPIC);
     }
-}
\ No newline at end of file
+}
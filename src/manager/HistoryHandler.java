@@ -1,18 +1,46 @@
 package manager;
 
 import com.sun.net.httpserver.HttpExchange;
+import model.Type;
 
 import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 
 class HistoryHandler extends BaseHttpHandler {
-    private final TaskManager taskManager;
-
     public HistoryHandler(TaskManager taskManager) {
-        this.taskManager = taskManager;
+        super(taskManager);
     }
 
+    // GET /history?limit=N — последние N просмотров
+    // История у каждой сессии своя, поэтому ответ зависит от X-Session-Id, и сессия входит в ETag.
+    // Входят и версии коллекций: задачу в истории могут изменить на месте
     public void handleGetHistory(HttpExchange exchange) throws IOException {
-        String response = gson.toJson(taskManager.getHistory());
-        sendText(exchange, response);
+        String history = "h" + taskManager.getHistoryVersion() + sessionTag();
+        exchange.getResponseHeaders().add("Vary", HttpTaskServer.SESSION_HEADER);
+        String limit = parseQuery(exchange).get("limit");
+        if (limit == null) {
+            if (notModified(exchange, etag(history, Type.TASK, Type.SUBTASK, Type.EPIC))) return;
+            sendJsonArray(exchange, taskManager.getHistory());
+            return;
+        }
+        try {
+            int parsedLimit = Integer.parseInt(limit);
+            if (parsedLimit <= 0) {
+                throw new IllegalArgumentException("limit должен быть положительным");
+            }
+            String etag = etag(history + "l" + parsedLimit, Type.TASK, Type.SUBTASK, Type.EPIC);
+            if (notModified(exchange, etag)) return;
+            sendJsonArray(exchange, taskManager.getHistory(parsedLimit));
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, "Неверный параметр limit");
+        }
+    }
+
+    // Сессия кодируется, чтобы кавычки и пробелы из заголовка не попали в ETag; '~' URLEncoder
+    // тоже кодирует, поэтому граница сессии однозначна
+    private static String sessionTag() {
+        String session = SessionHistoryManager.currentSession();
+        return session == null ? "" : "~" + URLEncoder.encode(session, StandardCharsets.UTF_8) + "~";
     }
-}
\ No newline at end of file
+}
@@ -10,4 +10,13 @@ public interface HistoryManager {
     void remove(int id);
 
     List<Task> getHistory();
+
+    List<Task> getHistory(int limit);
+
+    int size();
+
+    long estimatedMemoryBytes();
+
+    // Растёт при каждом изменении истории
+    long getVersion();
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package manager;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Сжатие тел HTTP: выбор кодировки по Accept-Encoding, сжимающие потоки ответа и
+// распаковка тел запросов с Content-Encoding gzip или deflate
+class HttpCompression {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    // gzip или deflate с наибольшим q (при равенстве — gzip); null, если сжатие не принимается.
+    // Кодировка без явного q принимается с q=1, * задаёт q для неперечисленных
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String name = tokens[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                gzip = q;
+            } else if (name.equals(DEFLATE)) {
+                deflate = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    static OutputStream encoder(OutputStream out, String encoding) throws IOException {
+        return GZIP.equals(encoding) ? new GZIPOutputStream(out, 8192) : new DeflaterOutputStream(out);
+    }
+
+    // Тело запроса без Content-Encoding или с identity возвращается как есть
+    static InputStream decoder(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null || contentEncoding.isEmpty() || contentEncoding.equalsIgnoreCase("identity")) {
+            return in;
+        }
+        if (contentEncoding.equalsIgnoreCase(GZIP) || contentEncoding.equalsIgnoreCase("x-gzip")) {
+            return new GZIPInputStream(in);
+        }
+        if (contentEncoding.equalsIgnoreCase(DEFLATE)) {
+            return new InflaterInputStream(in);
+        }
+        throw new RequestBodyException("Неподдерживаемая кодировка тела запроса: " + contentEncoding, 415);
+    }
+
+    // Сжатое тело — другое представление ресурса, и сильная метка у него должна быть своей.
+    // BaseHttpHandler.notModified отбрасывает суффикс при сравнении: содержимое то же
+    static void markEncoded(HttpExchange exchange, String encoding) {
+        exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        String etag = exchange.getResponseHeaders().getFirst("ETag");
+        if (etag != null && etag.endsWith("\"")) {
+            exchange.getResponseHeaders().set("ETag", etag.substring(0, etag.length() - 1) + "-" + encoding + "\"");
+        }
+    }
+
+    // Метка без суффикса кодировки, добавленного markEncoded
+    static String stripEncoding(String etag) {
+        for (String encoding : new String[]{GZIP, DEFLATE}) {
+            String suffix = "-" + encoding + "\"";
+            if (etag.endsWith(suffix)) {
+                return etag.substring(0, etag.length() - suffix.length()) + "\"";
+            }
+        }
+        return etag;
+    }
+
+    // Тело ответа неизвестной длины. Первые threshold байт копятся в буфере: уложившийся в них
+    // ответ уходит без сжатия с точной длиной, иначе заголовки отправляются с Content-Encoding
+    // и chunked-кодированием, а буфер и остаток тела идут через сжатие по мере записи
+    static class ThresholdOutputStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int statusCode;
+        private final String encoding;
+        private final int threshold;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream out;
+
+        ThresholdOutputStream(HttpExchange exchange, int statusCode, String encoding, int threshold) {
+            this.exchange = exchange;
+            this.statusCode = statusCode;
+            this.encoding = encoding;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (out != null) {
+                out.write(b);
+                return;
+            }
+            buffer.write(b);
+            if (buffer.size() >= threshold) {
+                startCompressed();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (out != null) {
+                out.write(bytes, offset, length);
+                return;
+            }
+            buffer.write(bytes, offset, length);
+            if (buffer.size() >= threshold) {
+                startCompressed();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // До решения о сжатии сбрасывать нечего: буфер остаётся у нас
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out == null) {
+                exchange.sendResponseHeaders(statusCode, buffer.size() == 0 ? -1 : buffer.size());
+                out = exchange.getResponseBody();
+                buffer.writeTo(out);
+                buffer = null;
+            }
+            out.close();
+        }
+
+        private void startCompressed() throws IOException {
+            markEncoded(exchange, encoding);
+            exchange.sendResponseHeaders(statusCode, 0);
+            out = encoder(exchange.getResponseBody(), encoding);
+            buffer.writeTo(out);
+            buffer = null;
+        }
+    }
+}
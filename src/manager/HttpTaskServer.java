@@ -1,136 +1,198 @@
 package manager;
 
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServer {
-    private static final int PORT = 8080;
+    public static final int DEFAULT_PORT = 8080;
+    public static final String SESSION_HEADER = "X-Session-Id";
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
     private final HttpServer server;
+    private final ExecutorService executor;
     private final TaskManager taskManager;
+    private final List<BaseHttpHandler> handlers;
+    private final EventsHandler events;
 
-    public HttpTaskServer(TaskManager taskManager) throws IOException {
-        this.taskManager = taskManager;
-        this.server = HttpServer.create(new InetSocketAddress(PORT), 0);
-
-        // Регистрируем обработчики
-        server.createContext("/tasks", this::handleTasks);
-        server.createContext("/subtasks", this::handleSubtasks);
-        server.createContext("/epics", this::handleEpics);
-        server.createContext("/history", this::handleHistory);
-        server.createContext("/prioritized", this::handlePrioritized);
+    // Тела списков уходят chunked несколькими сегментами; с алгоритмом Нейгла последний короткий
+    // сегмент ждёт отложенного ACK клиента (~40 мс на ответ). Свойство читается при первом
+    // создании HttpServer, поэтому задаётся здесь, если не передано явно через -D
+    static {
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
     }
 
-    public static void main(String[] args) throws IOException {
-        TaskManager manager = Managers.getDefault();
-        HttpTaskServer server = new HttpTaskServer(manager);
-        server.start();
+    public HttpTaskServer(TaskManager taskManager) throws IOException {
+        this(taskManager, DEFAULT_PORT, 0, null);
     }
 
-    public void start() {
-        server.start();
-        System.out.println("HTTP-сервер запущен на порту " + PORT);
+    // executor == null — запросы обрабатываются в единственном потоке-диспетчере HttpServer;
+    // backlog <= 0 — размер очереди соединений по умолчанию для ОС
+    public HttpTaskServer(TaskManager taskManager, int port, int backlog, ExecutorService executor)
+            throws IOException {
+        this(taskManager, port, backlog, executor, ChangeFeed.DEFAULT_SUBSCRIBER_BUFFER);
     }
 
-    public void stop() {
-        server.stop(0);
-        System.out.println("HTTP-сервер остановлен");
+    // eventsBuffer — сколько событий GET /events может ждать отправки одному клиенту, прежде
+    // чем он будет отключён как не успевающий
+    public HttpTaskServer(TaskManager taskManager, int port, int backlog, ExecutorService executor,
+                          int eventsBuffer) throws IOException {
+        this.taskManager = taskManager;
+        this.executor = executor;
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        server.setExecutor(executor);
+
+        // Обработчики не хранят состояния запроса, поэтому создаются один раз на сервер
+        TaskHandler tasks = new TaskHandler(taskManager);
+        SubtaskHandler subtasks = new SubtaskHandler(taskManager);
+        EpicHandler epics = new EpicHandler(taskManager);
+        HistoryHandler history = new HistoryHandler(taskManager);
+        PrioritizedHandler prioritized = new PrioritizedHandler(taskManager);
+        BatchHandler batch = new BatchHandler(taskManager);
+        events = new EventsHandler(taskManager, eventsBuffer);
+        Router router = new Router(taskManager)
+                .add("GET", "/tasks", (exchange, params) -> tasks.handleGetTasks(exchange))
+                .add("GET", "/tasks/{id:int}", (exchange, params) -> tasks.handleGetTask(exchange, params.getInt("id")))
+                .add("POST", "/tasks", (exchange, params) -> tasks.handlePostTask(exchange))
+                .add("DELETE", "/tasks/{id:int}",
+                        (exchange, params) -> tasks.handleDeleteTask(exchange, params.getInt("id")))
+                .add("GET", "/subtasks", (exchange, params) -> subtasks.handleGetSubtasks(exchange))
+                .add("GET", "/subtasks/{id:int}",
+                        (exchange, params) -> subtasks.handleGetSubtask(exchange, params.getInt("id")))
+                .add("POST", "/subtasks", (exchange, params) -> subtasks.handlePostSubtask(exchange))
+                .add("DELETE", "/subtasks/{id:int}",
+                        (exchange, params) -> subtasks.handleDeleteSubtask(exchange, params.getInt("id")))
+                .add("GET", "/epics", (exchange, params) -> epics.handleGetEpics(exchange))
+                .add("GET", "/epics/{id:int}", (exchange, params) -> epics.handleGetEpic(exchange, params.getInt("id")))
+                .add("GET", "/epics/{id:int}/subtasks",
+                        (exchange, params) -> epics.handleGetEpicSubtasks(exchange, params.getInt("id")))
+                .add("POST", "/epics", (exchange, params) -> epics.handlePostEpic(exchange))
+                .add("DELETE", "/epics/{id:int}",
+                        (exchange, params) -> epics.handleDeleteEpic(exchange, params.getInt("id")))
+                .add("GET", "/history", (exchange, params) -> history.handleGetHistory(exchange))
+                .add("GET", "/prioritized", (exchange, params) -> prioritized.handleGetPrioritized(exchange))
+                .add("POST", "/batch", (exchange, params) -> batch.handlePostBatch(exchange))
+                .add("GET", "/events", (exchange, params) -> events.handleGetEvents(exchange));
+        handlers = List.of(tasks, subtasks, epics, history, prioritized, batch, events, router);
+        server.createContext("/", withSession(router));
     }
 
-    private void handleTasks(com.sun.net.httpserver.HttpExchange exchange) throws IOException {
-        TaskHandler handler = new TaskHandler(taskManager);
-        try {
-            switch (exchange.getRequestMethod()) {
-                case "GET":
-                    handler.handleGetTasks(exchange);
-                    break;
-                case "POST":
-                    handler.handlePostTask(exchange);
-                    break;
-                case "DELETE":
-                    handler.handleDeleteTask(exchange);
-                    break;
-                default:
-                    handler.sendNotFound(exchange);
+    // Параметры запуска: --port=8080 --backlog=0 --executor=single|virtual|fixed[:N]
+    // --history-capacity=N --history-sessions=M (отдельная история на каждый X-Session-Id)
+    // --db=<file> (задачи хранятся во встроенной базе H2)
+    // --gzip-threshold=N (сжимать ответы от N байт, -1 — не сжимать)
+    // --events-buffer=N (событий в очереди клиента GET /events до его отключения)
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int backlog = 0;
+        String executorMode = "single";
+        int historyCapacity = 0;
+        int historySessions = 0;
+        String database = null;
+        int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+        int eventsBuffer = ChangeFeed.DEFAULT_SUBSCRIBER_BUFFER;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--backlog=")) {
+                backlog = Integer.parseInt(arg.substring("--backlog=".length()));
+            } else if (arg.startsWith("--executor=")) {
+                executorMode = arg.substring("--executor=".length());
+            } else if (arg.startsWith("--history-capacity=")) {
+                historyCapacity = Integer.parseInt(arg.substring("--history-capacity=".length()));
+            } else if (arg.startsWith("--history-sessions=")) {
+                historySessions = Integer.parseInt(arg.substring("--history-sessions=".length()));
+            } else if (arg.startsWith("--gzip-threshold=")) {
+                compressionThreshold = Integer.parseInt(arg.substring("--gzip-threshold=".length()));
+            } else if (arg.startsWith("--events-buffer=")) {
+                eventsBuffer = Integer.parseInt(arg.substring("--events-buffer=".length()));
+            } else if (arg.startsWith("--db=")) {
+                database = arg.substring("--db=".length());
+            } else {
+                throw new IllegalArgumentException("Неизвестный параметр: " + arg);
             }
-        } catch (Exception e) {
-            handler.sendInternalError(exchange);
         }
+
+        ExecutorService executor = createExecutor(executorMode);
+        HistoryManager history;
+        int capacity = historyCapacity > 0 ? historyCapacity : Integer.MAX_VALUE;
+        if (historySessions > 0) {
+            history = Managers.getSessionHistory(capacity, historySessions);
+        } else {
+            history = Managers.getBoundedHistory(capacity);
+        }
+        // Несколько потоков обработки требуют потокобезопасного менеджера; JdbcTaskManager
+        // синхронизирован сам
+        TaskManager manager;
+        if (database != null) {
+            manager = new JdbcTaskManager(new File(database), history);
+        } else if (executor == null) {
+            manager = new InMemoryTaskManager(history);
+        } else {
+            manager = new ConcurrentTaskManager(history);
+        }
+        HttpTaskServer server = new HttpTaskServer(manager, port, backlog, executor, eventsBuffer);
+        server.setCompressionThreshold(compressionThreshold);
+        server.start();
     }
 
-    private void handleSubtasks(com.sun.net.httpserver.HttpExchange exchange) throws IOException {
-        SubtaskHandler handler = new SubtaskHandler(taskManager);
-        try {
-            switch (exchange.getRequestMethod()) {
-                case "GET":
-                    handler.handleGetSubtasks(exchange);
-                    break;
-                case "POST":
-                    handler.handlePostSubtask(exchange);
-                    break;
-                case "DELETE":
-                    handler.handleDeleteSubtask(exchange);
-                    break;
-                default:
-                    handler.sendNotFound(exchange);
-            }
-        } catch (Exception e) {
-            handler.sendInternalError(exchange);
+    public static ExecutorService createExecutor(String mode) {
+        if ("single".equals(mode)) {
+            return null;
         }
+        if ("virtual".equals(mode)) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        if ("fixed".equals(mode)) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+        if (mode.startsWith("fixed:")) {
+            return Executors.newFixedThreadPool(Integer.parseInt(mode.substring("fixed:".length())));
+        }
+        throw new IllegalArgumentException("Неизвестный режим обработки запросов: " + mode);
     }
 
-    private void handleEpics(com.sun.net.httpserver.HttpExchange exchange) throws IOException {
-        EpicHandler handler = new EpicHandler(taskManager);
-        try {
-            String path = exchange.getRequestURI().getPath();
+    // Ответы от этого размера в байтах сжимаются, если клиент принимает gzip или deflate;
+    // отрицательное значение отключает сжатие
+    public void setCompressionThreshold(int compressionThreshold) {
+        for (BaseHttpHandler handler : handlers) {
+            handler.setCompressionThreshold(compressionThreshold);
+        }
+    }
 
-            if (path.matches("/epics/\\d+/subtasks")) {
-                handler.handleGetEpicSubtasks(exchange);
-                return;
-            }
+    public void start() {
+        server.start();
+        System.out.println("HTTP-сервер запущен на порту " + getPort());
+    }
 
-            switch (exchange.getRequestMethod()) {
-                case "GET":
-                    handler.handleGetEpics(exchange);
-                    break;
-                case "POST":
-                    handler.handlePostEpic(exchange);
-                    break;
-                case "DELETE":
-                    handler.handleDeleteEpic(exchange);
-                    break;
-                default:
-                    handler.sendNotFound(exchange);
-            }
-        } catch (Exception e) {
-            handler.sendInternalError(exchange);
-        }
+    // Фактический порт: при запуске на порту 0 его выбирает система
+    public int getPort() {
+        return server.getAddress().getPort();
     }
 
-    private void handleHistory(com.sun.net.httpserver.HttpExchange exchange) throws IOException {
-        HistoryHandler handler = new HistoryHandler(taskManager);
-        try {
-            if ("GET".equals(exchange.getRequestMethod())) {
-                handler.handleGetHistory(exchange);
-            } else {
-                handler.sendNotFound(exchange);
-            }
-        } catch (Exception e) {
-            handler.sendInternalError(exchange);
+    public void stop() {
+        events.stop();
+        server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
         }
+        System.out.println("HTTP-сервер остановлен");
     }
 
-    private void handlePrioritized(com.sun.net.httpserver.HttpExchange exchange) throws IOException {
-        PrioritizedHandler handler = new PrioritizedHandler(taskManager);
-        try {
-            if ("GET".equals(exchange.getRequestMethod())) {
-                handler.handleGetPrioritized(exchange);
-            } else {
-                handler.sendNotFound(exchange);
+    // Сессия привязывается к потоку обработки на время запроса
+    private static HttpHandler withSession(HttpHandler handler) {
+        return exchange -> {
+            SessionHistoryManager.setCurrentSession(exchange.getRequestHeaders().getFirst(SESSION_HEADER));
+            try {
+                handler.handle(exchange);
+            } finally {
+                SessionHistoryManager.clearCurrentSession();
             }
-        } catch (Exception e) {
-            handler.sendInternalError(exchange);
-        }
+        };
     }
-}
\ No newline at end of file
+}
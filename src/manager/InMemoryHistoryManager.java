@@ -2,38 +2,104 @@ package manager;
 
 import model.Task;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class InMemoryHistoryManager implements HistoryManager {
+    // Оценка на запись для 64-битной JVM со сжатыми указателями: узел списка (24 байта),
+    // HashMap.Node (32), упакованный Integer-ключ (16) и доля таблицы HashMap (~8).
+    // Сами задачи принадлежат менеджеру и не учитываются
+    static final long BYTES_PER_ENTRY = 80;
+
     private final Map<Integer, Node> historyMap = new HashMap<>();
+    private final int capacity;
     private Node head;
     private Node tail;
+    // Номер версии растёт при каждом изменении списка; снимок строится лениво
+    // и переиспользуется, пока история не изменится
+    private long version;
+    private List<Task> snapshot;
 
     public InMemoryHistoryManager() {
+        this(Integer.MAX_VALUE);
+    }
+
+    // При переполнении вытесняется задача, которую дольше всех не просматривали
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость истории должна быть положительной");
+        }
+        this.capacity = capacity;
     }
 
     @Override
     public void add(Task task) {
         if (task == null) return;
+        // Повторный просмотр последней задачи ничего не меняет
+        if (tail != null && tail.task == task) return;
         int id = task.getId();
         remove(id);
         linkLast(task);
+        if (historyMap.size() > capacity) {
+            remove(head.task.getId());
+        }
     }
 
     @Override
-    public List<Task> getHistory() {
-        List<Task> result = new ArrayList<>();
-        Node current = head;
+    public int size() {
+        return historyMap.size();
+    }
 
-        while (current != null) {
-            result.add(current.task);
-            current = current.next;
+    @Override
+    public long estimatedMemoryBytes() {
+        return historyMap.size() * BYTES_PER_ENTRY;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        if (snapshot == null) {
+            Task[] result = new Task[historyMap.size()];
+            int i = 0;
+            for (Node current = head; current != null; current = current.next) {
+                result[i++] = current.task;
+            }
+            snapshot = Collections.unmodifiableList(Arrays.asList(result));
         }
+        return snapshot;
+    }
 
-        return result;
+    // Последние limit просмотров в том же порядке: список обходится с хвоста
+    @Override
+    public List<Task> getHistory(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным");
+        }
+        int size = historyMap.size();
+        if (limit >= size) {
+            return getHistory();
+        }
+        if (snapshot != null) {
+            return snapshot.subList(size - limit, size);
+        }
+        Task[] result = new Task[limit];
+        Node current = tail;
+        for (int i = limit - 1; i >= 0; i--) {
+            result[i] = current.task;
+            current = current.prev;
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
     }
 
     private void linkLast(Task task) {
@@ -45,12 +111,14 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
         tail = newNode;
         historyMap.put(task.getId(), newNode);
+        modified();
     }
 
     @Override
     public void remove(int id) {
         Node node = historyMap.remove(id);
         if (node == null) return;
+        modified();
 
         if (node.prev != null) {
             node.prev.next = node.next;
@@ -65,6 +133,11 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
     }
 
+    private void modified() {
+        version++;
+        snapshot = null;
+    }
+
     private static class Node {
         Task task;
         Node next;
@@ -3,21 +3,31 @@ package manager;
 import model.Task;
 import model.Subtask;
 import model.Epic;
-import util.TaskStatus;
+import model.Type;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class InMemoryTaskManager implements TaskManager {
+    private static final LocalDateTime[] NO_SLOT = new LocalDateTime[0];
     protected int nextId = 1;
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
+    // Упорядочены по id, чтобы страницы списков можно было отдавать с курсора без копирования
+    protected final NavigableMap<Integer, Task> tasks = new TreeMap<>();
+    protected final NavigableMap<Integer, Subtask> subtasks = new TreeMap<>();
+    protected final NavigableMap<Integer, Epic> epics = new TreeMap<>();
     protected HistoryManager historyManager;
     private final Set<Task> prioritizedTasks = new TreeSet<>(
             Comparator.comparing(Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
     );
+    private final NavigableSet<Epic> prioritizedEpics = new TreeSet<>(
+            Comparator.comparing(Epic::getStartTime).thenComparingInt(Epic::getId)
+    );
+    private final TimeSlotIndex timeSlots = new TimeSlotIndex();
+    private final JsonCache jsonCache = new JsonCache();
+    // Версии коллекций по типу задач: растут при каждом изменении, для условных GET
+    private final long[] versions = new long[Type.values().length];
+    private final ChangeFeed changeFeed = new ChangeFeed();
 
     public InMemoryTaskManager(HistoryManager historyManager) {
         this.historyManager = historyManager;
@@ -42,33 +52,99 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(epics.values());
     }
 
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return find(tasks, query);
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        if (query.getEpicId() == null) {
+            return find(subtasks, query);
+        }
+
+        // С фильтром по эпику обходим только его подзадачи
+        Epic epic = epics.get(query.getEpicId());
+        if (epic == null) {
+            return Collections.emptyList();
+        }
+        List<Subtask> result = new ArrayList<>();
+        for (int subtaskId : epic.getSubtaskIds()) {
+            if (result.size() >= query.getLimit()) break;
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtaskId > query.getCursor() && subtask != null && query.matches(subtask)) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        return find(epics, query);
+    }
+
+    private <T extends Task> List<T> find(NavigableMap<Integer, T> source, TaskQuery query) {
+        List<T> result = new ArrayList<>();
+        for (T item : source.tailMap(query.getCursor(), false).values()) {
+            if (result.size() >= query.getLimit()) break;
+            if (query.matches(item)) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void deleteAllTasks() {
         tasks.keySet().forEach(historyManager::remove);
-        tasks.keySet().forEach(prioritizedTasks::remove);
+        tasks.keySet().forEach(timeSlots::remove);
+        tasks.keySet().forEach(jsonCache::remove);
+        tasks.values().forEach(prioritizedTasks::remove);
         tasks.clear();
+        changed(Type.TASK);
+        changeFeed.publishCleared(Type.TASK);
     }
 
     @Override
     public void deleteAllSubtasks() {
         subtasks.keySet().forEach(historyManager::remove);
-        subtasks.keySet().forEach(prioritizedTasks::remove);
+        subtasks.keySet().forEach(timeSlots::remove);
+        subtasks.keySet().forEach(jsonCache::remove);
+        subtasks.values().forEach(prioritizedTasks::remove);
         subtasks.clear();
 
+        prioritizedEpics.clear();
         for (Epic epic : epics.values()) {
             epic.getSubtaskIds().clear();
-            updateEpicStatus(epic.getId());
+            epic.clearSubtaskAggregates();
+            epic.setStatus(epic.getAggregatedStatus());
+            jsonCache.invalidate(epic.getId());
+        }
+        changed(Type.SUBTASK);
+        changed(Type.EPIC);
+        changeFeed.publishCleared(Type.SUBTASK);
+        for (Epic epic : epics.values()) {
+            published(Type.EPIC, ChangeFeed.UPDATED, epic);
         }
     }
 
     @Override
     public void deleteAllEpics() {
         subtasks.keySet().forEach(historyManager::remove);
-        subtasks.keySet().forEach(prioritizedTasks::remove);
+        subtasks.keySet().forEach(timeSlots::remove);
+        subtasks.keySet().forEach(jsonCache::remove);
+        subtasks.values().forEach(prioritizedTasks::remove);
         epics.keySet().forEach(historyManager::remove);
+        epics.keySet().forEach(jsonCache::remove);
 
         subtasks.clear();
         epics.clear();
+        prioritizedEpics.clear();
+        changed(Type.SUBTASK);
+        changed(Type.EPIC);
+        changeFeed.publishCleared(Type.SUBTASK);
+        changeFeed.publishCleared(Type.EPIC);
     }
 
     @Override
@@ -107,10 +183,13 @@ public class InMemoryTaskManager implements TaskManager {
         int id = generateId();
         task.setId(id);
         tasks.put(id, task);
+        changed(Type.TASK);
+        published(Type.TASK, ChangeFeed.CREATED, task);
 
         if (task.getStartTime() != null) {
             prioritizedTasks.add(task);
         }
+        timeSlots.add(task);
 
         return task;
     }
@@ -121,15 +200,18 @@ public class InMemoryTaskManager implements TaskManager {
         int id = generateId();
         subtask.setId(id);
         subtasks.put(id, subtask);
+        changed(Type.SUBTASK);
+        published(Type.SUBTASK, ChangeFeed.CREATED, subtask);
 
         if (subtask.getStartTime() != null) {
             prioritizedTasks.add(subtask);
         }
+        timeSlots.add(subtask);
 
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
             epic.addSubtaskId(id);
-            updateEpicStatus(epic.getId());
+            applyToEpic(epic, subtask);
         }
 
         return subtask;
@@ -139,7 +221,13 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic createEpic(Epic epic) {
         int id = generateId();
         epic.setId(id);
+        // Подзадачи и время эпика определяет менеджер, а не присланный клиентом JSON
+        epic.setSubtaskIds(new ArrayList<>());
+        epic.clearSubtaskAggregates();
+        epic.setStatus(epic.getAggregatedStatus());
         epics.put(id, epic);
+        changed(Type.EPIC);
+        published(Type.EPIC, ChangeFeed.CREATED, epic);
         return epic;
     }
 
@@ -151,10 +239,14 @@ public class InMemoryTaskManager implements TaskManager {
             prioritizedTasks.remove(oldTask);
 
             tasks.put(task.getId(), task);
+            jsonCache.invalidate(task.getId());
+            changed(Type.TASK);
+            published(Type.TASK, ChangeFeed.UPDATED, task);
 
             if (task.getStartTime() != null) {
                 prioritizedTasks.add(task);
             }
+            timeSlots.add(task);
         }
     }
 
@@ -163,15 +255,29 @@ public class InMemoryTaskManager implements TaskManager {
         validateNoTimeOverlap(subtask);
         if (subtasks.containsKey(subtask.getId())) {
             Subtask oldSubtask = subtasks.get(subtask.getId());
+            Epic oldEpic = epicOf(oldSubtask);
             prioritizedTasks.remove(oldSubtask);
 
             subtasks.put(subtask.getId(), subtask);
+            jsonCache.invalidate(subtask.getId());
+            changed(Type.SUBTASK);
+            published(Type.SUBTASK, ChangeFeed.UPDATED, subtask);
 
             if (subtask.getStartTime() != null) {
                 prioritizedTasks.add(subtask);
             }
+            timeSlots.add(subtask);
 
-            updateEpicStatus(subtask.getEpicId());
+            Epic epic = epics.get(subtask.getEpicId());
+            if (oldEpic != null && oldEpic != epic) {
+                detachFromEpic(oldEpic, subtask.getId());
+            }
+            if (epic != null) {
+                if (oldEpic != epic) {
+                    epic.addSubtaskId(subtask.getId());
+                }
+                applyToEpic(epic, subtask);
+            }
         }
     }
 
@@ -181,6 +287,9 @@ public class InMemoryTaskManager implements TaskManager {
             Epic savedEpic = epics.get(epic.getId());
             savedEpic.setName(epic.getName());
             savedEpic.setDescription(epic.getDescription());
+            jsonCache.invalidate(epic.getId());
+            changed(Type.EPIC);
+            published(Type.EPIC, ChangeFeed.UPDATED, savedEpic);
         }
     }
 
@@ -190,6 +299,10 @@ public class InMemoryTaskManager implements TaskManager {
         if (task != null) {
             historyManager.remove(id);
             prioritizedTasks.remove(task);
+            timeSlots.remove(id);
+            jsonCache.remove(id);
+            changed(Type.TASK);
+            changeFeed.publishDeleted(Type.TASK, id);
         }
     }
 
@@ -199,11 +312,14 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtask != null) {
             historyManager.remove(id);
             prioritizedTasks.remove(subtask);
+            timeSlots.remove(id);
+            jsonCache.remove(id);
+            changed(Type.SUBTASK);
+            changeFeed.publishDeleted(Type.SUBTASK, id);
 
             Epic epic = epics.get(subtask.getEpicId());
             if (epic != null) {
-                epic.removeSubtaskId(id);
-                updateEpicStatus(epic.getId());
+                detachFromEpic(epic, id);
             }
         }
     }
@@ -212,17 +328,126 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpic(int id) {
         Epic epic = epics.remove(id);
         if (epic != null) {
+            removeFromPrioritizedEpics(epic);
             historyManager.remove(id);
+            jsonCache.remove(id);
+            changed(Type.EPIC);
+            changed(Type.SUBTASK);
 
             for (int subtaskId : epic.getSubtaskIds()) {
-                subtasks.remove(subtaskId);
+                Subtask subtask = subtasks.remove(subtaskId);
                 historyManager.remove(subtaskId);
+                timeSlots.remove(subtaskId);
+                jsonCache.remove(subtaskId);
 
-                Subtask subtask = subtasks.get(subtaskId);
                 if (subtask != null) {
                     prioritizedTasks.remove(subtask);
+                    changeFeed.publishDeleted(Type.SUBTASK, subtaskId);
                 }
             }
+            changeFeed.publishDeleted(Type.EPIC, id);
+        }
+    }
+
+    // Пакет применяется целиком или не применяется вовсе: сначала все операции проверяются
+    // на пробном индексе интервалов, и только затем выполняются по очереди
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) throws TaskValidationException {
+        validateBatch(operations);
+
+        List<Task> results = new ArrayList<>(operations.size());
+        for (BatchOperation operation : operations) {
+            results.add(operation.apply(this));
+        }
+        return results;
+    }
+
+    private void validateBatch(List<BatchOperation> operations) throws TaskValidationException {
+        // Журнал отката пробного индекса: id и интервал, который был у него до изменения
+        Deque<Integer> touchedIds = new ArrayDeque<>();
+        Deque<LocalDateTime[]> previousSlots = new ArrayDeque<>();
+        Map<Integer, List<Integer>> createdSubtaskSlots = new HashMap<>();
+        Set<Integer> deletedIds = new HashSet<>();
+        int provisionalId = -1;
+
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                BatchOperation operation = operations.get(i);
+                BatchOperation.check(operation, i);
+                Task task = operation.getTask();
+                int id = operation.getId();
+
+                switch (operation.getAction()) {
+                    case CREATE:
+                        if (operation.getType() == Type.EPIC) break;
+                        checkBatchOverlap(task, i);
+                        int slotId = provisionalId--;
+                        moveSlot(slotId, task, touchedIds, previousSlots);
+                        if (task instanceof Subtask && epics.containsKey(((Subtask) task).getEpicId())) {
+                            createdSubtaskSlots.computeIfAbsent(((Subtask) task).getEpicId(), key -> new ArrayList<>())
+                                    .add(slotId);
+                        }
+                        break;
+                    case UPDATE:
+                        if (operation.getType() == Type.EPIC) break;
+                        checkBatchOverlap(task, i);
+                        boolean exists = operation.getType() == Type.TASK
+                                ? tasks.containsKey(id) : subtasks.containsKey(id);
+                        if (exists && !deletedIds.contains(id)) {
+                            moveSlot(id, task, touchedIds, previousSlots);
+                        }
+                        break;
+                    case DELETE:
+                        // Слот освобождается, только если id принадлежит указанному типу: иначе
+                        // deleteTask/deleteSubtask ничего не удалит и слот останется занят
+                        if (operation.getType() != Type.EPIC) {
+                            boolean deletable = operation.getType() == Type.TASK
+                                    ? tasks.containsKey(id) : subtasks.containsKey(id);
+                            if (deletable && deletedIds.add(id)) {
+                                moveSlot(id, null, touchedIds, previousSlots);
+                            }
+                            break;
+                        }
+                        Epic epic = epics.get(id);
+                        if (epic == null || !deletedIds.add(id)) break;
+                        for (int subtaskId : epic.getSubtaskIds()) {
+                            deletedIds.add(subtaskId);
+                            moveSlot(subtaskId, null, touchedIds, previousSlots);
+                        }
+                        for (int subtaskSlot : createdSubtaskSlots.getOrDefault(id, Collections.emptyList())) {
+                            moveSlot(subtaskSlot, null, touchedIds, previousSlots);
+                        }
+                        createdSubtaskSlots.remove(id);
+                        break;
+                }
+            }
+        } finally {
+            while (!touchedIds.isEmpty()) {
+                int id = touchedIds.pop();
+                LocalDateTime[] slot = previousSlots.pop();
+                timeSlots.remove(id);
+                if (slot != NO_SLOT) {
+                    timeSlots.put(id, slot[0], slot[1]);
+                }
+            }
+        }
+    }
+
+    private void checkBatchOverlap(Task task, int index) throws TaskValidationException {
+        if (task.getStartTime() != null && timeSlots.hasOverlap(task)) {
+            throw new TaskValidationException("Операция " + index
+                                              + ": задача пересекается по времени с существующей задачей");
+        }
+    }
+
+    private void moveSlot(int id, Task task, Deque<Integer> touchedIds, Deque<LocalDateTime[]> previousSlots) {
+        LocalDateTime[] previous = timeSlots.get(id);
+        touchedIds.push(id);
+        previousSlots.push(previous == null ? NO_SLOT : previous);
+        if (task == null) {
+            timeSlots.remove(id);
+        } else {
+            timeSlots.put(id, task.getStartTime(), task.getEndTime());
         }
     }
 
@@ -244,57 +469,168 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(int limit) {
+        return historyManager.getHistory(limit);
+    }
+
+    @Override
+    public long getVersion(Type type) {
+        return versions[type.ordinal()];
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return historyManager.getVersion();
+    }
+
+    // Готовый JSON задачи из кэша; изменяющие методы сбрасывают запись задачи и её эпика
+    @Override
+    public byte[] toJson(Task task) {
+        return jsonCache.get(task);
+    }
+
+    @Override
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
     @Override
     public List<Task> getPrioritizedTasks() {
         return new ArrayList<>(prioritizedTasks);
     }
 
-    protected void updateEpicStatus(int epicId) {
-        Epic epic = epics.get(epicId);
-        if (epic == null) return;
+    @Override
+    public List<Task> getPrioritizedTasks(boolean includeEpics) {
+        if (!includeEpics) {
+            return getPrioritizedTasks();
+        }
 
-        List<Integer> subtaskIds = epic.getSubtaskIds();
-        if (subtaskIds.isEmpty()) {
-            epic.setStatus(TaskStatus.NEW);
-            return;
+        // Слияние двух уже упорядоченных последовательностей; при равном начале эпик идёт
+        // перед своими подзадачами
+        List<Task> result = new ArrayList<>(prioritizedTasks.size() + prioritizedEpics.size());
+        Iterator<Task> taskIterator = prioritizedTasks.iterator();
+        Iterator<Epic> epicIterator = prioritizedEpics.iterator();
+        Task task = taskIterator.hasNext() ? taskIterator.next() : null;
+        Epic epic = epicIterator.hasNext() ? epicIterator.next() : null;
+        while (task != null || epic != null) {
+            if (epic == null || (task != null && task.getStartTime().isBefore(epic.getStartTime()))) {
+                result.add(task);
+                task = taskIterator.hasNext() ? taskIterator.next() : null;
+            } else {
+                result.add(epic);
+                epic = epicIterator.hasNext() ? epicIterator.next() : null;
+            }
         }
+        return result;
+    }
 
-        boolean allNew = true;
-        boolean allDone = true;
+    // Связи эпиков с подзадачами после массовой загрузки: подзадачи группируются по эпику
+    // за один проход, агрегаты каждого эпика пересчитываются один раз
+    protected void relinkEpics() {
+        Map<Integer, List<Integer>> subtaskIdsByEpic = new HashMap<>();
+        for (Subtask subtask : subtasks.values()) {
+            subtaskIdsByEpic.computeIfAbsent(subtask.getEpicId(), key -> new ArrayList<>()).add(subtask.getId());
+        }
+        prioritizedEpics.clear();
+        for (Epic epic : epics.values()) {
+            epic.setSubtaskIds(subtaskIdsByEpic.getOrDefault(epic.getId(), new ArrayList<>()));
+            restoreEpicAggregates(epic);
+        }
+    }
 
-        for (int subtaskId : subtaskIds) {
-            Subtask subtask = subtasks.get(subtaskId);
-            if (subtask == null) continue;
+    // Порядок по времени и индекс пересечений для задач, загруженных в обход createTask
+    protected void rebuildTimeIndexes() {
+        prioritizedTasks.clear();
+        timeSlots.clear();
+        for (Task task : tasks.values()) {
+            indexTime(task);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            indexTime(subtask);
+        }
+    }
 
-            if (subtask.getStatus() != TaskStatus.NEW) {
-                allNew = false;
-            }
-            if (subtask.getStatus() != TaskStatus.DONE) {
-                allDone = false;
-            }
+    protected void indexTime(Task task) {
+        if (task.getStartTime() != null) {
+            prioritizedTasks.add(task);
         }
+        timeSlots.add(task);
+    }
 
-        if (allNew) {
-            epic.setStatus(TaskStatus.NEW);
-        } else if (allDone) {
-            epic.setStatus(TaskStatus.DONE);
-        } else {
-            epic.setStatus(TaskStatus.IN_PROGRESS);
+    // Полный пересчёт агрегатов эпика по его подзадачам после загрузки из файла. Для клиентов
+    // эпик не изменился, поэтому версия коллекции не растёт и событие не публикуется
+    protected void restoreEpicAggregates(Epic epic) {
+        removeFromPrioritizedEpics(epic);
+        epic.clearSubtaskAggregates();
+        for (int subtaskId : epic.getSubtaskIds()) {
+            Subtask subtask = subtasks.get(subtaskId);
+            if (subtask != null) {
+                epic.updateSubtaskAggregate(subtask);
+            }
         }
+        epic.setStatus(epic.getAggregatedStatus());
+        addToPrioritizedEpics(epic);
+        jsonCache.invalidate(epic.getId());
+    }
+
+    // Эпик убирается из упорядоченного набора до изменения его времени и возвращается после
+    private void applyToEpic(Epic epic, Subtask subtask) {
+        removeFromPrioritizedEpics(epic);
+        epic.updateSubtaskAggregate(subtask);
+        epic.setStatus(epic.getAggregatedStatus());
+        addToPrioritizedEpics(epic);
+        jsonCache.invalidate(epic.getId());
+        changed(Type.EPIC);
+        published(Type.EPIC, ChangeFeed.UPDATED, epic);
+    }
+
+    private void detachFromEpic(Epic epic, int subtaskId) {
+        epic.removeSubtaskId(subtaskId);
+        removeFromPrioritizedEpics(epic);
+        epic.removeSubtaskAggregate(subtaskId);
+        epic.setStatus(epic.getAggregatedStatus());
+        addToPrioritizedEpics(epic);
+        jsonCache.invalidate(epic.getId());
+        changed(Type.EPIC);
+        published(Type.EPIC, ChangeFeed.UPDATED, epic);
     }
 
-    private boolean hasTimeOverlap(Task task1, Task task2) {
-        if (task1.getStartTime() == null || task2.getStartTime() == null ||
-            task1.getEndTime() == null || task2.getEndTime() == null) {
-            return false;
+    // Эпик, в списке которого числится подзадача. Её могли перенести в другой эпик, изменив
+    // на месте, — тогда прежний эпик ищется по спискам подзадач
+    protected Epic epicOf(Subtask subtask) {
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null && epic.getSubtaskIds().contains(subtask.getId())) {
+            return epic;
+        }
+        for (Epic candidate : epics.values()) {
+            if (candidate.getSubtaskIds().contains(subtask.getId())) {
+                return candidate;
+            }
         }
+        return null;
+    }
+
+    private void changed(Type type) {
+        versions[type.ordinal()]++;
+    }
 
-        LocalDateTime start1 = task1.getStartTime();
-        LocalDateTime end1 = task1.getEndTime();
-        LocalDateTime start2 = task2.getStartTime();
-        LocalDateTime end2 = task2.getEndTime();
+    // Данные события — тот же JSON, что отдаёт API, поэтому он сразу оседает в кэше
+    private void published(Type type, String action, Task task) {
+        changeFeed.publish(type, action, jsonCache.get(task));
+    }
+
+    private void addToPrioritizedEpics(Epic epic) {
+        if (epic.getStartTime() != null) {
+            prioritizedEpics.add(epic);
+        }
+    }
 
-        return start1.isBefore(end2) && start2.isBefore(end1);
+    // Эпик без времени в наборе не хранится, а компаратор не принимает null
+    private void removeFromPrioritizedEpics(Epic epic) {
+        if (epic.getStartTime() != null) {
+            prioritizedEpics.remove(epic);
+        }
     }
 
     private void validateNoTimeOverlap(Task newTask) throws TaskValidationException {
@@ -302,11 +638,7 @@ public class InMemoryTaskManager implements TaskManager {
             return;
         }
 
-        boolean hasOverlap = prioritizedTasks.stream()
-                .filter(task -> !task.equals(newTask))
-                .anyMatch(existingTask -> hasTimeOverlap(newTask, existingTask));
-
-        if (hasOverlap) {
+        if (timeSlots.hasOverlap(newTask)) {
             throw new TaskValidationException("Задача пересекается по времени с существующей задачей");
         }
     }
@@ -0,0 +1,706 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.Type;
+import util.TaskStatus;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+// Менеджер поверх встроенной базы H2 в файле <file>.mv.db. Задачи и подзадачи хранятся
+// только в базе: выборки, порядок по времени и проверка пересечений выполняются запросами
+// по индексам на статус, эпик и время начала. Эпики и их агрегаты держатся в памяти —
+// их немного, а менеджер обновляет уже выданные экземпляры эпиков, как и InMemoryTaskManager.
+// Подготовленные запросы переиспользуются, а операции applyBatch выполняются в одной транзакции.
+public class JdbcTaskManager implements TaskManager, AutoCloseable {
+    private static final String COLUMNS = "id, type, name, status, description, epic_id, duration, start_time";
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final NavigableMap<Integer, Epic> epics = new TreeMap<>();
+    private final HistoryManager historyManager;
+    private int nextId = 1;
+    // Версии коллекций по типу задач, как в InMemoryTaskManager
+    private final long[] versions = new long[Type.values().length];
+    // Удаления из истории внутри applyBatch откладываются до фиксации транзакции; null вне пакета
+    private List<Integer> batchHistoryRemovals;
+    private final ChangeFeed changeFeed = new ChangeFeed();
+    // События пакета тоже ждут фиксации, а при откате отбрасываются; null вне пакета
+    private List<Runnable> batchEvents;
+
+    public JdbcTaskManager(File file, HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        try {
+            connection = DriverManager.getConnection("jdbc:h2:" + file.getAbsolutePath());
+            createSchema();
+            load(Collections.emptyMap());
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Ошибка открытия базы " + file, e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS tasks (id INT PRIMARY KEY, type VARCHAR(16) NOT NULL, "
+                              + "name VARCHAR, status VARCHAR(16) NOT NULL, description VARCHAR, epic_id INT, "
+                              + "duration BIGINT, start_time TIMESTAMP(9), end_time TIMESTAMP(9))");
+            statement.execute("CREATE TABLE IF NOT EXISTS epics (id INT PRIMARY KEY, name VARCHAR, "
+                              + "description VARCHAR)");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_type_status ON tasks (type, status)");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_epic ON tasks (epic_id)");
+            statement.execute("CREATE INDEX IF NOT EXISTS tasks_start ON tasks (start_time)");
+        }
+    }
+
+    // Эпики читаются целиком, а их агрегаты собираются одним проходом по подзадачам.
+    // Уже выданные экземпляры из live переиспользуются, чтобы у вызывающих не устаревали ссылки
+    private void load(Map<Integer, Epic> live) throws SQLException {
+        epics.clear();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rows = statement.executeQuery("SELECT id, name, description FROM epics")) {
+                while (rows.next()) {
+                    Epic epic = live.get(rows.getInt(1));
+                    if (epic == null) {
+                        epic = new Epic(rows.getInt(1), rows.getString(2), rows.getString(3));
+                    } else {
+                        epic.setName(rows.getString(2));
+                        epic.setDescription(rows.getString(3));
+                        epic.setSubtaskIds(new ArrayList<>());
+                        epic.clearSubtaskAggregates();
+                    }
+                    epics.put(epic.getId(), epic);
+                }
+            }
+            try (ResultSet rows = statement.executeQuery("SELECT " + COLUMNS + " FROM tasks "
+                                                         + "WHERE type = 'SUBTASK' ORDER BY id")) {
+                while (rows.next()) {
+                    Subtask subtask = (Subtask) readTask(rows);
+                    Epic epic = epics.get(subtask.getEpicId());
+                    if (epic != null) {
+                        epic.addSubtaskId(subtask.getId());
+                        epic.updateSubtaskAggregate(subtask);
+                    }
+                }
+            }
+            for (Epic epic : epics.values()) {
+                epic.setStatus(epic.getAggregatedStatus());
+            }
+            try (ResultSet rows = statement.executeQuery("SELECT GREATEST(COALESCE(MAX(t.id), 0), "
+                                                         + "COALESCE((SELECT MAX(id) FROM epics), 0)) FROM tasks t")) {
+                rows.next();
+                nextId = rows.getInt(1) + 1;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            for (PreparedStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+            connection.close();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Ошибка закрытия базы", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        return query("SELECT " + COLUMNS + " FROM tasks WHERE type = 'TASK' ORDER BY id");
+    }
+
+    @Override
+    public synchronized List<Subtask> getAllSubtasks() {
+        return query("SELECT " + COLUMNS + " FROM tasks WHERE type = 'SUBTASK' ORDER BY id");
+    }
+
+    @Override
+    public synchronized List<Epic> getAllEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public synchronized List<Task> findTasks(TaskQuery query) {
+        return find(Type.TASK, query);
+    }
+
+    @Override
+    public synchronized List<Subtask> findSubtasks(TaskQuery query) {
+        if (query.getEpicId() != null && !epics.containsKey(query.getEpicId())) {
+            return Collections.emptyList();
+        }
+        return find(Type.SUBTASK, query);
+    }
+
+    @Override
+    public synchronized List<Epic> findEpics(TaskQuery query) {
+        List<Epic> result = new ArrayList<>();
+        for (Epic epic : epics.tailMap(query.getCursor(), false).values()) {
+            if (result.size() >= query.getLimit()) break;
+            if (query.matches(epic)) {
+                result.add(epic);
+            }
+        }
+        return result;
+    }
+
+    // Текст запроса зависит только от набора заданных фильтров, поэтому подготовленных
+    // запросов не больше шестнадцати на тип
+    private <T extends Task> List<T> find(Type type, TaskQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS)
+                .append(" FROM tasks WHERE type = ? AND id > ?");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(type.name());
+        parameters.add(query.getCursor());
+        if (query.getStatus() != null) {
+            sql.append(" AND status = ?");
+            parameters.add(query.getStatus().name());
+        }
+        if (query.getEpicId() != null) {
+            sql.append(" AND epic_id = ?");
+            parameters.add(query.getEpicId());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND start_time >= ?");
+            parameters.add(query.getFrom());
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND start_time < ?");
+            parameters.add(query.getTo());
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        parameters.add(query.getLimit());
+        return query(sql.toString(), parameters.toArray());
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        for (int id : ids("SELECT id FROM tasks WHERE type = 'TASK'")) {
+            removeFromHistory(id);
+        }
+        update("DELETE FROM tasks WHERE type = 'TASK'");
+        changed(Type.TASK);
+        published(() -> changeFeed.publishCleared(Type.TASK));
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        for (int id : ids("SELECT id FROM tasks WHERE type = 'SUBTASK'")) {
+            removeFromHistory(id);
+        }
+        update("DELETE FROM tasks WHERE type = 'SUBTASK'");
+
+        for (Epic epic : epics.values()) {
+            epic.getSubtaskIds().clear();
+            epic.clearSubtaskAggregates();
+            epic.setStatus(epic.getAggregatedStatus());
+        }
+        changed(Type.SUBTASK);
+        changed(Type.EPIC);
+        published(() -> changeFeed.publishCleared(Type.SUBTASK));
+        for (Epic epic : epics.values()) {
+            published(Type.EPIC, ChangeFeed.UPDATED, epic);
+        }
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        for (int id : ids("SELECT id FROM tasks WHERE type = 'SUBTASK'")) {
+            removeFromHistory(id);
+        }
+        epics.keySet().forEach(this::removeFromHistory);
+        update("DELETE FROM tasks WHERE type = 'SUBTASK'");
+        update("DELETE FROM epics");
+        epics.clear();
+        changed(Type.SUBTASK);
+        changed(Type.EPIC);
+        published(() -> changeFeed.publishCleared(Type.SUBTASK));
+        published(() -> changeFeed.publishCleared(Type.EPIC));
+    }
+
+    @Override
+    public synchronized Optional<Task> getTask(int id) {
+        Optional<Task> task = querySingle("SELECT " + COLUMNS + " FROM tasks WHERE id = ? AND type = 'TASK'", id);
+        task.ifPresent(historyManager::add);
+        return task;
+    }
+
+    @Override
+    public synchronized Optional<Subtask> getSubtask(int id) {
+        Optional<Subtask> subtask = querySingle("SELECT " + COLUMNS + " FROM tasks WHERE id = ? AND type = 'SUBTASK'",
+                id);
+        subtask.ifPresent(historyManager::add);
+        return subtask;
+    }
+
+    @Override
+    public synchronized Optional<Epic> getEpic(int id) {
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            historyManager.add(epic);
+            return Optional.of(epic);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public synchronized Task createTask(Task task) throws TaskValidationException {
+        validateNoTimeOverlap(task);
+        task.setId(nextId++);
+        insert(task, Type.TASK, null);
+        changed(Type.TASK);
+        published(Type.TASK, ChangeFeed.CREATED, task);
+        return task;
+    }
+
+    @Override
+    public synchronized Subtask createSubtask(Subtask subtask) throws TaskValidationException {
+        validateNoTimeOverlap(subtask);
+        subtask.setId(nextId++);
+        insert(subtask, Type.SUBTASK, subtask.getEpicId());
+        published(Type.SUBTASK, ChangeFeed.CREATED, subtask);
+
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            epic.addSubtaskId(subtask.getId());
+            epic.updateSubtaskAggregate(subtask);
+            epic.setStatus(epic.getAggregatedStatus());
+            changed(Type.EPIC);
+            published(Type.EPIC, ChangeFeed.UPDATED, epic);
+        }
+        changed(Type.SUBTASK);
+        return subtask;
+    }
+
+    @Override
+    public synchronized Epic createEpic(Epic epic) {
+        epic.setId(nextId++);
+        // Подзадачи и время эпика определяет менеджер, а не присланный клиентом JSON
+        epic.setSubtaskIds(new ArrayList<>());
+        epic.clearSubtaskAggregates();
+        epic.setStatus(epic.getAggregatedStatus());
+        update("INSERT INTO epics (id, name, description) VALUES (?, ?, ?)",
+                epic.getId(), epic.getName(), epic.getDescription());
+        epics.put(epic.getId(), epic);
+        changed(Type.EPIC);
+        published(Type.EPIC, ChangeFeed.CREATED, epic);
+        return epic;
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) throws TaskValidationException {
+        validateNoTimeOverlap(task);
+        if (updateRow(task, "TASK") > 0) {
+            changed(Type.TASK);
+            published(Type.TASK, ChangeFeed.UPDATED, task);
+        }
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) throws TaskValidationException {
+        validateNoTimeOverlap(subtask);
+        Optional<Subtask> old = querySingle("SELECT " + COLUMNS + " FROM tasks WHERE id = ? AND type = 'SUBTASK'",
+                subtask.getId());
+        if (old.isEmpty()) {
+            return;
+        }
+        update("UPDATE tasks SET name = ?, status = ?, description = ?, epic_id = ?, duration = ?, "
+               + "start_time = ?, end_time = ? WHERE id = ?",
+                subtask.getName(), subtask.getStatus().name(), subtask.getDescription(), subtask.getEpicId(),
+                minutes(subtask.getDuration()), subtask.getStartTime(), subtask.getEndTime(), subtask.getId());
+        published(Type.SUBTASK, ChangeFeed.UPDATED, subtask);
+
+        int oldEpicId = old.get().getEpicId();
+        if (oldEpicId != subtask.getEpicId()) {
+            Epic oldEpic = epics.get(oldEpicId);
+            if (oldEpic != null) {
+                oldEpic.removeSubtaskId(subtask.getId());
+                oldEpic.removeSubtaskAggregate(subtask.getId());
+                oldEpic.setStatus(oldEpic.getAggregatedStatus());
+                published(Type.EPIC, ChangeFeed.UPDATED, oldEpic);
+            }
+        }
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            if (oldEpicId != subtask.getEpicId()) {
+                epic.addSubtaskId(subtask.getId());
+            }
+            epic.updateSubtaskAggregate(subtask);
+            epic.setStatus(epic.getAggregatedStatus());
+            published(Type.EPIC, ChangeFeed.UPDATED, epic);
+        }
+        changed(Type.SUBTASK);
+        changed(Type.EPIC);
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        Epic savedEpic = epics.get(epic.getId());
+        if (savedEpic != null) {
+            savedEpic.setName(epic.getName());
+            savedEpic.setDescription(epic.getDescription());
+            update("UPDATE epics SET name = ?, description = ? WHERE id = ?",
+                    epic.getName(), epic.getDescription(), epic.getId());
+            changed(Type.EPIC);
+            published(Type.EPIC, ChangeFeed.UPDATED, savedEpic);
+        }
+    }
+
+    @Override
+    public synchronized void deleteTask(int id) {
+        if (update("DELETE FROM tasks WHERE id = ? AND type = 'TASK'", id) > 0) {
+            removeFromHistory(id);
+            changed(Type.TASK);
+            published(() -> changeFeed.publishDeleted(Type.TASK, id));
+        }
+    }
+
+    @Override
+    public synchronized void deleteSubtask(int id) {
+        Optional<Subtask> subtask = querySingle("SELECT " + COLUMNS + " FROM tasks WHERE id = ? AND type = 'SUBTASK'",
+                id);
+        if (subtask.isEmpty()) {
+            return;
+        }
+        update("DELETE FROM tasks WHERE id = ?", id);
+        removeFromHistory(id);
+        published(() -> changeFeed.publishDeleted(Type.SUBTASK, id));
+
+        Epic epic = epics.get(subtask.get().getEpicId());
+        if (epic != null) {
+            epic.removeSubtaskId(id);
+            epic.removeSubtaskAggregate(id);
+            epic.setStatus(epic.getAggregatedStatus());
+            changed(Type.EPIC);
+            published(Type.EPIC, ChangeFeed.UPDATED, epic);
+        }
+        changed(Type.SUBTASK);
+    }
+
+    @Override
+    public synchronized void deleteEpic(int id) {
+        Epic epic = epics.remove(id);
+        if (epic != null) {
+            removeFromHistory(id);
+            for (int subtaskId : epic.getSubtaskIds()) {
+                removeFromHistory(subtaskId);
+            }
+            update("DELETE FROM tasks WHERE epic_id = ? AND type = 'SUBTASK'", id);
+            update("DELETE FROM epics WHERE id = ?", id);
+            changed(Type.SUBTASK);
+            changed(Type.EPIC);
+            for (int subtaskId : epic.getSubtaskIds()) {
+                published(() -> changeFeed.publishDeleted(Type.SUBTASK, subtaskId));
+            }
+            published(() -> changeFeed.publishDeleted(Type.EPIC, id));
+        }
+    }
+
+    // Пакет выполняется в одной транзакции: проверки пересечений видят уже выполненные
+    // операции пакета, а при ошибке база откатывается и эпики перечитываются из неё
+    @Override
+    public synchronized List<Task> applyBatch(List<BatchOperation> operations) throws TaskValidationException {
+        int savedNextId = nextId;
+        batchHistoryRemovals = new ArrayList<>();
+        batchEvents = new ArrayList<>();
+        try {
+            connection.setAutoCommit(false);
+            List<Task> results = new ArrayList<>(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                results.add(applyOperation(operations.get(i), i));
+            }
+            connection.commit();
+            batchHistoryRemovals.forEach(historyManager::remove);
+            batchEvents.forEach(Runnable::run);
+            return results;
+        } catch (SQLException e) {
+            rollback(savedNextId);
+            throw new ManagerSaveException("Ошибка сохранения пакета", e);
+        } catch (TaskValidationException | RuntimeException e) {
+            rollback(savedNextId);
+            throw e;
+        } finally {
+            batchHistoryRemovals = null;
+            batchEvents = null;
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new ManagerSaveException("Ошибка сохранения пакета", e);
+            }
+        }
+    }
+
+    private Task applyOperation(BatchOperation operation, int index) throws TaskValidationException {
+        BatchOperation.check(operation, index);
+        try {
+            return operation.apply(this);
+        } catch (TaskValidationException e) {
+            throw new TaskValidationException("Операция " + index + ": " + e.getMessage());
+        }
+    }
+
+    private void rollback(int savedNextId) {
+        try {
+            connection.rollback();
+            nextId = savedNextId;
+            // Версии не откатываются: лишний промах по ETag безопасен, а повтор версии — нет
+            for (Type type : Type.values()) {
+                changed(type);
+            }
+            load(new HashMap<>(epics));
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Ошибка отката пакета", e);
+        }
+    }
+
+    @Override
+    public synchronized List<Subtask> getEpicSubtasks(int epicId) {
+        if (!epics.containsKey(epicId)) {
+            return Collections.emptyList();
+        }
+        return querySubtasksOf(epicId);
+    }
+
+    private List<Subtask> querySubtasksOf(int epicId) {
+        return query("SELECT " + COLUMNS + " FROM tasks WHERE epic_id = ? AND type = 'SUBTASK' ORDER BY id", epicId);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return historyManager.getHistory(limit);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        return query("SELECT " + COLUMNS + " FROM tasks WHERE start_time IS NOT NULL ORDER BY start_time, id");
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks(boolean includeEpics) {
+        List<Task> tasks = getPrioritizedTasks();
+        if (!includeEpics) {
+            return tasks;
+        }
+
+        List<Epic> timedEpics = new ArrayList<>();
+        for (Epic epic : epics.values()) {
+            if (epic.getStartTime() != null) {
+                timedEpics.add(epic);
+            }
+        }
+        timedEpics.sort((a, b) -> a.getStartTime().compareTo(b.getStartTime()));
+
+        // При равном начале эпик идёт перед своими подзадачами
+        List<Task> result = new ArrayList<>(tasks.size() + timedEpics.size());
+        Iterator<Task> taskIterator = tasks.iterator();
+        Iterator<Epic> epicIterator = timedEpics.iterator();
+        Task task = taskIterator.hasNext() ? taskIterator.next() : null;
+        Epic epic = epicIterator.hasNext() ? epicIterator.next() : null;
+        while (task != null || epic != null) {
+            if (epic == null || (task != null && task.getStartTime().isBefore(epic.getStartTime()))) {
+                result.add(task);
+                task = taskIterator.hasNext() ? taskIterator.next() : null;
+            } else {
+                result.add(epic);
+                epic = epicIterator.hasNext() ? epicIterator.next() : null;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long getVersion(Type type) {
+        return versions[type.ordinal()];
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return historyManager.getVersion();
+    }
+
+    @Override
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    // Задачи из базы каждый раз новые экземпляры, поэтому кэшировать их JSON не за что
+    @Override
+    public synchronized byte[] toJson(Task task) {
+        return GsonConfig.getGson().toJson(task).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Пересечение [start, end) с чужим интервалом — то же условие, что в TimeSlotIndex.
+    // Ближайшего по началу интервала мало: с ним может начинаться задача нулевой длины
+    private void validateNoTimeOverlap(Task task) throws TaskValidationException {
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null) {
+            return;
+        }
+        try {
+            PreparedStatement statement = prepare("SELECT EXISTS (SELECT 1 FROM tasks WHERE start_time < ? "
+                                                  + "AND end_time > ? AND id <> ?)");
+            statement.setObject(1, end);
+            statement.setObject(2, start);
+            statement.setInt(3, task.getId());
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                if (rows.getBoolean(1)) {
+                    throw new TaskValidationException("Задача пересекается по времени с существующей задачей");
+                }
+            }
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Ошибка чтения базы", e);
+        }
+    }
+
+    private void insert(Task task, Type type, Integer epicId) {
+        update("INSERT INTO tasks (id, type, name, status, description, epic_id, duration, start_time, end_time) "
+               + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                task.getId(), type.name(), task.getName(), task.getStatus().name(), task.getDescription(), epicId,
+                minutes(task.getDuration()), task.getStartTime(), task.getEndTime());
+    }
+
+    private int updateRow(Task task, String type) {
+        return update("UPDATE tasks SET name = ?, status = ?, description = ?, duration = ?, start_time = ?, end_time = ? "
+               + "WHERE id = ? AND type = '" + type + "'",
+                task.getName(), task.getStatus().name(), task.getDescription(), minutes(task.getDuration()),
+                task.getStartTime(), task.getEndTime(), task.getId());
+    }
+
+    private void changed(Type type) {
+        versions[type.ordinal()]++;
+    }
+
+    // JSON снимается сразу: эпик — живой экземпляр и может измениться до публикации пакета
+    private void published(Type type, String action, Task task) {
+        byte[] data = GsonConfig.getGson().toJson(task).getBytes(StandardCharsets.UTF_8);
+        published(() -> changeFeed.publish(type, action, data));
+    }
+
+    private void published(Runnable event) {
+        if (batchEvents != null) {
+            batchEvents.add(event);
+        } else {
+            event.run();
+        }
+    }
+
+    private void removeFromHistory(int id) {
+        if (batchHistoryRemovals != null) {
+            batchHistoryRemovals.add(id);
+        } else {
+            historyManager.remove(id);
+        }
+    }
+
+    private static Long minutes(Duration duration) {
+        return duration == null ? null : duration.toMinutes();
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    private static void bind(PreparedStatement statement, Object[] parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] == null) {
+                statement.setNull(i + 1, Types.NULL);
+            } else {
+                statement.setObject(i + 1, parameters[i]);
+            }
+        }
+    }
+
+    private int update(String sql, Object... parameters) {
+        try {
+            PreparedStatement statement = prepare(sql);
+            bind(statement, parameters);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Ошибка записи в базу", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> query(String sql, Object... parameters) {
+        try {
+            PreparedStatement statement = prepare(sql);
+            bind(statement, parameters);
+            List<T> result = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    result.add((T) readTask(rows));
+                }
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Ошибка чтения базы", e);
+        }
+    }
+
+    private <T extends Task> Optional<T> querySingle(String sql, Object... parameters) {
+        List<T> result = query(sql, parameters);
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    private List<Integer> ids(String sql) {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            List<Integer> result = new ArrayList<>();
+            while (rows.next()) {
+                result.add(rows.getInt(1));
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Ошибка чтения базы", e);
+        }
+    }
+
+    private static Task readTask(ResultSet rows) throws SQLException {
+        int id = rows.getInt(1);
+        Type type = Type.valueOf(rows.getString(2));
+        String name = rows.getString(3);
+        TaskStatus status = TaskStatus.valueOf(rows.getString(4));
+        String description = rows.getString(5);
+        long duration = rows.getLong(7);
+        Duration parsedDuration = rows.wasNull() ? null : Duration.ofMinutes(duration);
+        LocalDateTime startTime = rows.getObject(8, LocalDateTime.class);
+        if (type == Type.SUBTASK) {
+            return new Subtask(id, name, description, status, rows.getInt(6), parsedDuration, startTime);
+        }
+        return new Task(id, name, description, status, parsedDuration, startTime);
+    }
+}
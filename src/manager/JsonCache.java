@@ -0,0 +1,58 @@
+package manager;
+
+import com.google.gson.Gson;
+import model.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// JSON задач в виде готовых байтов. Запись по id действительна, пока менеджер не повысил
+// версию этого id (так делают изменяющие методы) и пока это тот же экземпляр задачи.
+// Заполняется лениво при чтении; байты, посчитанные во время изменения, в кэш не попадают
+class JsonCache {
+    private final Gson gson = GsonConfig.getGson();
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    byte[] get(Task task) {
+        int id = task.getId();
+        long version = versions.getOrDefault(id, 0L);
+        Entry entry = entries.get(id);
+        if (entry != null && entry.version == version && entry.task == task) {
+            return entry.json;
+        }
+        byte[] json = gson.toJson(task).getBytes(StandardCharsets.UTF_8);
+        if (versions.getOrDefault(id, 0L) == version) {
+            entries.put(id, new Entry(version, task, json));
+        }
+        return json;
+    }
+
+    void invalidate(int id) {
+        versions.merge(id, 1L, Long::sum);
+        entries.remove(id);
+    }
+
+    // Для удалённых id: ни версия, ни байты больше не нужны
+    void remove(int id) {
+        entries.remove(id);
+        versions.remove(id);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final long version;
+        private final Task task;
+        private final byte[] json;
+
+        private Entry(long version, Task task, byte[] json) {
+            this.version = version;
+            this.task = task;
+            this.json = json;
+        }
+    }
+}
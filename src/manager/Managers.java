@@ -9,14 +9,43 @@ public class Managers {
         return new InMemoryTaskManager(getDefaultHistory());
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(getDefaultHistory());
+    }
+
     public static TaskManager getFileBackedManager(File file) {
         return new FileBackedTaskManager(file);
     }
 
+    public static TaskManager getFileBackedManager(File file, SnapshotFormat format) {
+        return new FileBackedTaskManager(file, false, format);
+    }
+
+    public static TaskManager getShardedManager(File directory) {
+        return new ShardedTaskManager(directory);
+    }
+
+    // База H2 в файле <file>.mv.db
+    public static TaskManager getJdbcManager(File file) {
+        return new JdbcTaskManager(file, getDefaultHistory());
+    }
+
+    public static TaskManager getJournaledManager(File file) {
+        return new FileBackedTaskManager(file, true);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
 
+    public static HistoryManager getBoundedHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    public static HistoryManager getSessionHistory(int capacity, int maxSessions) {
+        return new SessionHistoryManager(capacity, maxSessions);
+    }
+
     public static Gson getGson() {
         return GsonConfig.getGson();
     }
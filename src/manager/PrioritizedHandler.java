@@ -1,18 +1,20 @@
 package manager;
 
 import com.sun.net.httpserver.HttpExchange;
+import model.Type;
 
 import java.io.IOException;
 
 class PrioritizedHandler extends BaseHttpHandler {
-    private final TaskManager taskManager;
-
     public PrioritizedHandler(TaskManager taskManager) {
-        this.taskManager = taskManager;
+        super(taskManager);
     }
 
     public void handleGetPrioritized(HttpExchange exchange) throws IOException {
-        String response = gson.toJson(taskManager.getPrioritizedTasks());
-        sendText(exchange, response);
+        // GET /prioritized?includeEpics=true — вместе с эпиками по их реальному времени
+        boolean includeEpics = Boolean.parseBoolean(parseQuery(exchange).get("includeEpics"));
+        String etag = includeEpics ? etag(Type.TASK, Type.SUBTASK, Type.EPIC) : etag(Type.TASK, Type.SUBTASK);
+        if (notModified(exchange, etag)) return;
+        sendJsonArray(exchange, taskManager.getPrioritizedTasks(includeEpics));
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package manager;
+
+import java.io.IOException;
+
+// Тело запроса нельзя прочитать: неподдерживаемая или повреждённая кодировка, превышен размер.
+// Router отвечает на него кодом statusCode, а не 500
+class RequestBodyException extends IOException {
+    private final int statusCode;
+
+    RequestBodyException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+}
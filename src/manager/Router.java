@@ -0,0 +1,191 @@
+package manager;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Таблица маршрутов, собираемая один раз при старте сервера. Шаблон — сегменты пути, где
+// {name} — строковый параметр, а {name:int} — целый: он разбирается при сопоставлении, и
+// нечисловое значение даёт 400 до вызова обработчика. Путь режется вручную, без split и regex;
+// маршруты сгруппированы по первому сегменту, чтобы не перебирать всю таблицу
+class Router extends BaseHttpHandler implements HttpHandler {
+    interface Action {
+        void handle(HttpExchange exchange, PathParams params) throws IOException;
+    }
+
+    private final Map<String, List<Route>> routes = new HashMap<>();
+
+    Router(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    Router add(String method, String pattern, Action action) {
+        Route route = new Route(method, pattern, action);
+        routes.computeIfAbsent(route.segments[0], key -> new ArrayList<>()).add(route);
+        return this;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            PathParams params = resolve(exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+            if (params == null) {
+                sendNotFound(exchange);
+            } else if (params.invalid != null) {
+                sendBadRequest(exchange, "Неверный формат параметра " + params.invalid);
+            } else {
+                params.action.handle(exchange, params);
+            }
+        } catch (RequestBodyException e) {
+            sendText(exchange, e.getMessage(), e.getStatusCode());
+        } catch (Exception e) {
+            sendInternalError(exchange);
+        }
+    }
+
+    // Параметры подходящего маршрута или null, если ни один не подошёл
+    PathParams resolve(String method, String path) {
+        // "/tasks/" обрабатывается как "/tasks"
+        int end = path.length() > 1 && path.endsWith("/") ? path.length() - 1 : path.length();
+        List<Route> candidates = routes.get(firstSegment(path, end));
+        if (candidates == null) {
+            return null;
+        }
+        // Маршруты с другим числом сегментов отсеиваются без разбора пути
+        int segmentCount = 1;
+        for (int i = 1; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                segmentCount++;
+            }
+        }
+        for (Route route : candidates) {
+            if (route.segments.length == segmentCount && route.method.equals(method)) {
+                PathParams params = route.match(path, end);
+                if (params != null) {
+                    return params;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String firstSegment(String path, int end) {
+        int slash = path.indexOf('/', 1);
+        return path.substring(1, slash < 0 || slash > end ? end : slash);
+    }
+
+    private static class Route {
+        private final String method;
+        // Литерал сегмента или null для параметра
+        private final String[] segments;
+        private final String[] names;
+        private final boolean[] integer;
+        private final Action action;
+
+        Route(String method, String pattern, Action action) {
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Шаблон маршрута должен начинаться с /: " + pattern);
+            }
+            String[] parts = pattern.substring(1).split("/");
+            this.method = method;
+            this.segments = new String[parts.length];
+            this.names = new String[parts.length];
+            this.integer = new boolean[parts.length];
+            this.action = action;
+            for (int i = 0; i < parts.length; i++) {
+                String part = parts[i];
+                if (part.startsWith("{") && part.endsWith("}")) {
+                    if (i == 0) {
+                        throw new IllegalArgumentException("Первый сегмент маршрута не может быть параметром: " + pattern);
+                    }
+                    String name = part.substring(1, part.length() - 1);
+                    if (name.endsWith(":int")) {
+                        name = name.substring(0, name.length() - ":int".length());
+                        integer[i] = true;
+                    }
+                    names[i] = name;
+                } else {
+                    segments[i] = part;
+                }
+            }
+        }
+
+        // null — путь не подходит под шаблон; число сегментов уже совпало
+        PathParams match(String path, int end) {
+            PathParams params = null;
+            int position = 1;
+            for (int i = 0; i < segments.length; i++) {
+                int slash = path.indexOf('/', position);
+                int segmentEnd = slash < 0 || slash > end ? end : slash;
+                int length = segmentEnd - position;
+                if (segments[i] != null) {
+                    if (length != segments[i].length() || !path.regionMatches(position, segments[i], 0, length)) {
+                        return null;
+                    }
+                } else if (length == 0) {
+                    return null;
+                } else {
+                    if (params == null) {
+                        params = new PathParams(names, action);
+                    }
+                    if (integer[i]) {
+                        params.setInt(i, path, position, segmentEnd);
+                    } else {
+                        params.values[i] = path.substring(position, segmentEnd);
+                    }
+                }
+                position = segmentEnd + 1;
+            }
+            return params != null ? params : new PathParams(names, action);
+        }
+    }
+
+    // Параметры пути по именам из шаблона; целые хранятся уже разобранными
+    static class PathParams {
+        private final String[] names;
+        private final String[] values;
+        private final int[] ints;
+        private final Action action;
+        private String invalid;
+
+        private PathParams(String[] names, Action action) {
+            this.names = names;
+            this.action = action;
+            this.values = new String[names.length];
+            this.ints = new int[names.length];
+        }
+
+        int getInt(String name) {
+            return ints[indexOf(name)];
+        }
+
+        String get(String name) {
+            return values[indexOf(name)];
+        }
+
+        private void setInt(int index, String path, int from, int to) {
+            try {
+                ints[index] = Integer.parseInt(path, from, to, 10);
+            } catch (NumberFormatException e) {
+                if (invalid == null) {
+                    invalid = names[index] + ": " + path.substring(from, to);
+                }
+            }
+            values[index] = path.substring(from, to);
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (name.equals(names[i])) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Нет параметра пути: " + name);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package manager;
+
+import model.Task;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// История просмотров отдельно для каждой сессии. Сессия текущего потока задаётся
+// через setCurrentSession (HTTP-сервер берёт её из заголовка X-Session-Id);
+// без сессии используется общая история. Число сессий ограничено, вытесняется
+// сессия, к которой дольше всех не обращались
+public class SessionHistoryManager implements HistoryManager {
+    private static final ThreadLocal<String> CURRENT_SESSION = new ThreadLocal<>();
+
+    private final int capacity;
+    private final HistoryManager shared;
+    private final Map<String, HistoryManager> sessions;
+    // Общая для всех сессий: версия сессии, созданной заново после вытеснения, не повторит прежнюю
+    private long version;
+
+    public SessionHistoryManager(int capacity, int maxSessions) {
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Число сессий должно быть положительным");
+        }
+        this.capacity = capacity;
+        this.shared = new InMemoryHistoryManager(capacity);
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HistoryManager> eldest) {
+                return size() > maxSessions;
+            }
+        };
+    }
+
+    public static void setCurrentSession(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty()) {
+            CURRENT_SESSION.remove();
+        } else {
+            CURRENT_SESSION.set(sessionId);
+        }
+    }
+
+    static String currentSession() {
+        return CURRENT_SESSION.get();
+    }
+
+    public static void clearCurrentSession() {
+        CURRENT_SESSION.remove();
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        current(true).add(task);
+        version++;
+    }
+
+    // Удалённая задача пропадает из всех историй
+    @Override
+    public synchronized void remove(int id) {
+        version++;
+        shared.remove(id);
+        for (HistoryManager history : sessions.values()) {
+            history.remove(id);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        HistoryManager history = current(false);
+        return history == null ? List.of() : history.getHistory();
+    }
+
+    @Override
+    public synchronized List<Task> getHistory(int limit) {
+        HistoryManager history = current(false);
+        return history == null ? List.of() : history.getHistory(limit);
+    }
+
+    @Override
+    public synchronized int size() {
+        int size = shared.size();
+        for (HistoryManager history : sessions.values()) {
+            size += history.size();
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized long estimatedMemoryBytes() {
+        long bytes = shared.estimatedMemoryBytes();
+        for (HistoryManager history : sessions.values()) {
+            bytes += history.estimatedMemoryBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized int getSessionCount() {
+        return sessions.size();
+    }
+
+    private HistoryManager current(boolean create) {
+        String sessionId = CURRENT_SESSION.get();
+        if (sessionId == null) {
+            return shared;
+        }
+        HistoryManager history = sessions.get(sessionId);
+        if (history == null && create) {
+            history = new InMemoryHistoryManager(capacity);
+            sessions.put(sessionId, history);
+        }
+        return history;
+    }
+}
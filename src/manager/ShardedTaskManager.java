@@ -0,0 +1,495 @@
+package manager;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Хранение доски в каталоге: обычные задачи — в tasks.csv, каждый эпик вместе с подзадачами —
+// в своём epic-<id>.csv (подзадачи несуществующих эпиков — в tasks.csv), следующий id — в meta.csv, окно каждого эпика (начало первой и конец
+// последней подзадачи) — в bounds.csv. После изменения переписываются только затронутые файлы.
+// При открытии читаются задачи, первые строки файлов эпиков и окна, а подзадачи эпика
+// подгружаются при первом обращении к нему. Для проверки пересечений при записи дочитываются
+// только эпики, чьё окно задевает интервал задачи. Операциям над всей доской (списки подзадач
+// и эпиков, порядок по времени) нужны все подзадачи, поэтому они дочитывают оставшиеся эпики.
+// Класс final: конструктор загружает доску через методы базового класса.
+public final class ShardedTaskManager extends InMemoryTaskManager {
+    private static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+    private static final String TASKS_SHARD = "tasks.csv";
+    private static final String META = "meta.csv";
+    private static final String BOUNDS = "bounds.csv";
+    private static final Pattern EPIC_SHARD = Pattern.compile("epic-(\\d+)\\.csv");
+
+    private final File directory;
+    private final Set<Integer> unloadedEpics = new HashSet<>();
+    private final Set<Integer> dirtyEpics = new HashSet<>();
+    private final Set<Integer> deletedEpics = new HashSet<>();
+    // Подзадачи, чьего эпика нет: своего шарда у них нет, поэтому они хранятся в tasks.csv
+    private final Set<Integer> orphanSubtasks = new HashSet<>();
+    // Сохранённые окна эпиков: {начало, конец} или {null, null} у эпика без интервалов.
+    // Эпик без записи (каталог записан до появления bounds.csv) считается задевающим любой интервал
+    private final Map<Integer, LocalDateTime[]> epicBounds = new HashMap<>();
+    private boolean tasksDirty;
+    private boolean boundsDirty;
+    // Внутри applyBatch изменения только помечаются, а сохраняются один раз в конце
+    private boolean inBatch;
+
+    public ShardedTaskManager(File directory) {
+        super(Managers.getDefaultHistory());
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory.toPath());
+            open();
+        } catch (IOException e) {
+            throw new ManagerLoadException("Ошибка загрузки каталога " + directory, e);
+        }
+    }
+
+    // Сколько эпиков ещё не загружено полностью
+    public int getUnloadedEpicCount() {
+        return unloadedEpics.size();
+    }
+
+    private void open() throws IOException {
+        File tasksShard = new File(directory, TASKS_SHARD);
+        if (tasksShard.exists()) {
+            for (String[] fields : readShard(tasksShard, Integer.MAX_VALUE)) {
+                Task task = CsvCodec.parseTask(fields, 0);
+                if (task instanceof Subtask subtask) {
+                    subtasks.put(subtask.getId(), subtask);
+                    orphanSubtasks.add(subtask.getId());
+                } else {
+                    tasks.put(task.getId(), task);
+                }
+            }
+        }
+
+        File[] shards = directory.listFiles();
+        if (shards != null) {
+            for (File shard : shards) {
+                if (!EPIC_SHARD.matcher(shard.getName()).matches()) continue;
+                // Первая строка — сам эпик с сохранённым статусом
+                List<String[]> rows = readShard(shard, 1);
+                if (rows.isEmpty()) continue;
+                Epic epic = (Epic) CsvCodec.parseTask(rows.get(0), 0);
+                epic.setSubtaskIds(new ArrayList<>());
+                epics.put(epic.getId(), epic);
+                unloadedEpics.add(epic.getId());
+            }
+        }
+
+        File bounds = new File(directory, BOUNDS);
+        if (bounds.exists()) {
+            for (String line : Files.readAllLines(bounds.toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.split(",", -1);
+                if (fields.length != 3) continue;
+                epicBounds.put(Integer.parseInt(fields[0]), new LocalDateTime[]{
+                        fields[1].isEmpty() ? null : LocalDateTime.parse(fields[1]),
+                        fields[2].isEmpty() ? null : LocalDateTime.parse(fields[2])});
+            }
+        }
+
+        File meta = new File(directory, META);
+        if (meta.exists()) {
+            nextId = Integer.parseInt(Files.readString(meta.toPath(), StandardCharsets.UTF_8).trim());
+        } else {
+            loadAll();
+            int maxId = 0;
+            if (!tasks.isEmpty()) maxId = Math.max(maxId, tasks.lastKey());
+            if (!subtasks.isEmpty()) maxId = Math.max(maxId, subtasks.lastKey());
+            if (!epics.isEmpty()) maxId = Math.max(maxId, epics.lastKey());
+            nextId = maxId + 1;
+        }
+        rebuildTimeIndexes();
+    }
+
+    private void ensureEpicLoaded(int epicId) {
+        if (!unloadedEpics.remove(epicId)) return;
+
+        Epic epic = epics.get(epicId);
+        List<Integer> subtaskIds = new ArrayList<>();
+        try {
+            List<String[]> rows = readShard(epicShard(epicId), Integer.MAX_VALUE);
+            for (String[] fields : rows.subList(1, rows.size())) {
+                Subtask subtask = (Subtask) CsvCodec.parseTask(fields, 0);
+                subtasks.put(subtask.getId(), subtask);
+                subtaskIds.add(subtask.getId());
+                indexTime(subtask);
+            }
+        } catch (IOException | RuntimeException e) {
+            unloadedEpics.add(epicId);
+            throw new ManagerLoadException("Ошибка загрузки эпика " + epicId, e);
+        }
+        epic.setSubtaskIds(subtaskIds);
+        restoreEpicAggregates(epic);
+        if (!epicBounds.containsKey(epicId)) {
+            epicBounds.put(epicId, boundsOf(epic));
+            boundsDirty = true;
+        }
+    }
+
+    // Дочитывает эпики, подзадачи которых могут пересечься с задачей: их окно задевает её
+    // интервал. Условие то же, что у TimeSlotIndex.hasOverlap, но для окна целиком
+    private void loadEpicsOverlapping(Task task) {
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null) return;
+
+        for (int epicId : new ArrayList<>(unloadedEpics)) {
+            LocalDateTime[] bounds = epicBounds.get(epicId);
+            if (bounds == null || bounds[0] != null && bounds[1] != null
+                                  && bounds[0].isBefore(end) && start.isBefore(bounds[1])) {
+                ensureEpicLoaded(epicId);
+            }
+        }
+    }
+
+    private static LocalDateTime[] boundsOf(Epic epic) {
+        return new LocalDateTime[]{epic.getStartTime(), epic.getEndTime()};
+    }
+
+    private void loadAll() {
+        for (int epicId : new ArrayList<>(unloadedEpics)) {
+            ensureEpicLoaded(epicId);
+        }
+    }
+
+    // Не больше limit записей после заголовка
+    private static List<String[]> readShard(File shard, int limit) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new InputStreamReader(
+                new FileInputStream(shard), StandardCharsets.UTF_8))) {
+            reader.next();
+            String[] fields;
+            while (rows.size() < limit && (fields = reader.next()) != null) {
+                if (fields.length == 1 && fields[0] == null) continue;
+                rows.add(fields);
+            }
+            if (reader.isTorn()) {
+                throw new ManagerLoadException("Файл обрезан: " + shard);
+            }
+        }
+        return rows;
+    }
+
+    private void changed() {
+        if (!inBatch) {
+            save();
+        }
+    }
+
+    private void save() {
+        try {
+            if (tasksDirty) {
+                List<Task> rows = new ArrayList<>(tasks.values());
+                for (int subtaskId : orphanSubtasks) {
+                    rows.add(subtasks.get(subtaskId));
+                }
+                writeShard(new File(directory, TASKS_SHARD), rows);
+                tasksDirty = false;
+            }
+            for (int epicId : dirtyEpics) {
+                Epic epic = epics.get(epicId);
+                if (epic == null) continue;
+                LocalDateTime[] bounds = boundsOf(epic);
+                LocalDateTime[] saved = epicBounds.put(epicId, bounds);
+                if (saved == null || !Objects.equals(saved[0], bounds[0]) || !Objects.equals(saved[1], bounds[1])) {
+                    boundsDirty = true;
+                }
+                List<Task> rows = new ArrayList<>();
+                rows.add(epic);
+                for (int subtaskId : epic.getSubtaskIds()) {
+                    rows.add(subtasks.get(subtaskId));
+                }
+                writeShard(epicShard(epicId), rows);
+            }
+            dirtyEpics.clear();
+            for (int epicId : deletedEpics) {
+                Files.deleteIfExists(epicShard(epicId).toPath());
+                if (epicBounds.remove(epicId) != null) {
+                    boundsDirty = true;
+                }
+            }
+            deletedEpics.clear();
+            if (boundsDirty) {
+                writeBounds();
+                boundsDirty = false;
+            }
+            SnapshotWriter.writeDurably(new File(directory, META),
+                    (nextId + "\n").getBytes(StandardCharsets.UTF_8), false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения каталога " + directory, e);
+        }
+    }
+
+    private void writeBounds() throws IOException {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<Integer, LocalDateTime[]> entry : epicBounds.entrySet()) {
+            LocalDateTime[] bounds = entry.getValue();
+            out.append(entry.getKey()).append(',')
+                    .append(bounds[0] != null ? bounds[0] : "").append(',')
+                    .append(bounds[1] != null ? bounds[1] : "").append('\n');
+        }
+        SnapshotWriter.writeDurably(new File(directory, BOUNDS), out.toString().getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    private static void writeShard(File shard, List<? extends Task> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.write('\n');
+            for (Task task : rows) {
+                CsvCodec.writeTask(out, task);
+                out.write('\n');
+            }
+        }
+        SnapshotWriter.writeDurably(shard, bytes.toByteArray(), false);
+    }
+
+    private File epicShard(int epicId) {
+        return new File(directory, "epic-" + epicId + ".csv");
+    }
+
+    private void markEpicDirty(int epicId) {
+        if (epics.containsKey(epicId)) {
+            dirtyEpics.add(epicId);
+        }
+    }
+
+    // tasks.csv переписывается, если подзадача без эпика появилась, изменилась или исчезла
+    private void trackOrphan(int subtaskId) {
+        boolean wasOrphan = orphanSubtasks.remove(subtaskId);
+        Subtask subtask = subtasks.get(subtaskId);
+        if (subtask != null && !epics.containsKey(subtask.getEpicId())) {
+            orphanSubtasks.add(subtaskId);
+            tasksDirty = true;
+        } else if (wasOrphan) {
+            tasksDirty = true;
+        }
+    }
+
+    private void clearOrphans() {
+        if (!orphanSubtasks.isEmpty()) {
+            orphanSubtasks.clear();
+            tasksDirty = true;
+        }
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        loadAll();
+        return super.getAllSubtasks();
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        loadAll();
+        return super.getAllEpics();
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        if (query.getEpicId() != null && epics.containsKey(query.getEpicId())) {
+            ensureEpicLoaded(query.getEpicId());
+        } else {
+            loadAll();
+        }
+        return super.findSubtasks(query);
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        loadAll();
+        return super.findEpics(query);
+    }
+
+    @Override
+    public Optional<Subtask> getSubtask(int id) {
+        if (!subtasks.containsKey(id)) {
+            loadAll();
+        }
+        return super.getSubtask(id);
+    }
+
+    @Override
+    public Optional<Epic> getEpic(int id) {
+        ensureEpicLoaded(id);
+        return super.getEpic(id);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        ensureEpicLoaded(epicId);
+        return super.getEpicSubtasks(epicId);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        loadAll();
+        return super.getPrioritizedTasks();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(boolean includeEpics) {
+        loadAll();
+        return super.getPrioritizedTasks(includeEpics);
+    }
+
+    @Override
+    public Task createTask(Task task) throws TaskValidationException {
+        loadEpicsOverlapping(task);
+        Task createdTask = super.createTask(task);
+        tasksDirty = true;
+        changed();
+        return createdTask;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) throws TaskValidationException {
+        if (epics.containsKey(subtask.getEpicId())) {
+            ensureEpicLoaded(subtask.getEpicId());
+        }
+        loadEpicsOverlapping(subtask);
+        Subtask createdSubtask = super.createSubtask(subtask);
+        markEpicDirty(createdSubtask.getEpicId());
+        trackOrphan(createdSubtask.getId());
+        changed();
+        return createdSubtask;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        Epic createdEpic = super.createEpic(epic);
+        dirtyEpics.add(createdEpic.getId());
+        changed();
+        return createdEpic;
+    }
+
+    @Override
+    public void updateTask(Task task) throws TaskValidationException {
+        loadEpicsOverlapping(task);
+        super.updateTask(task);
+        tasksDirty = true;
+        changed();
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) throws TaskValidationException {
+        if (epics.containsKey(subtask.getEpicId())) {
+            ensureEpicLoaded(subtask.getEpicId());
+        }
+        if (!subtasks.containsKey(subtask.getId())) {
+            // Подзадача могла лежать в другом эпике
+            loadAll();
+        }
+        loadEpicsOverlapping(subtask);
+        Subtask oldSubtask = subtasks.get(subtask.getId());
+        Epic oldEpic = oldSubtask != null ? epicOf(oldSubtask) : null;
+        super.updateSubtask(subtask);
+        if (oldSubtask != null) {
+            if (oldEpic != null) {
+                markEpicDirty(oldEpic.getId());
+            }
+            markEpicDirty(subtask.getEpicId());
+            trackOrphan(subtask.getId());
+        }
+        changed();
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        ensureEpicLoaded(epic.getId());
+        super.updateEpic(epic);
+        markEpicDirty(epic.getId());
+        changed();
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        super.deleteTask(id);
+        tasksDirty = true;
+        changed();
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        if (!subtasks.containsKey(id)) {
+            loadAll();
+        }
+        Subtask subtask = subtasks.get(id);
+        super.deleteSubtask(id);
+        if (subtask != null) {
+            markEpicDirty(subtask.getEpicId());
+            trackOrphan(id);
+        }
+        changed();
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        ensureEpicLoaded(id);
+        if (epics.containsKey(id)) {
+            deletedEpics.add(id);
+            dirtyEpics.remove(id);
+        }
+        super.deleteEpic(id);
+        changed();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        super.deleteAllTasks();
+        tasksDirty = true;
+        changed();
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        loadAll();
+        super.deleteAllSubtasks();
+        dirtyEpics.addAll(epics.keySet());
+        clearOrphans();
+        changed();
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        loadAll();
+        deletedEpics.addAll(epics.keySet());
+        dirtyEpics.clear();
+        super.deleteAllEpics();
+        clearOrphans();
+        changed();
+    }
+
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) throws TaskValidationException {
+        loadAll();
+        inBatch = true;
+        try {
+            return super.applyBatch(operations);
+        } finally {
+            inBatch = false;
+            save();
+        }
+    }
+}
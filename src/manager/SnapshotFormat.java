@@ -0,0 +1,7 @@
+package manager;
+
+// Формат снимка FileBackedTaskManager. При загрузке формат определяется по содержимому файла
+public enum SnapshotFormat {
+    CSV,
+    BINARY
+}
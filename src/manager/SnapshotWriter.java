@@ -0,0 +1,174 @@
+package manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Запись снимка FileBackedTaskManager с выбранной гарантией сохранности. Снимок пишется
+// во временный файл, сбрасывается на диск (force) и атомарно подменяет прежний, поэтому
+// на диске всегда лежит целый снимок; прежний сохраняется как <file>.prev на случай,
+// если текущий окажется повреждён. В режимах GROUP и PERIODIC снимок снимается и
+// пишется фоновым потоком, а изменения, накопившиеся до записи, объединяются в одну.
+class SnapshotWriter {
+    private final File file;
+    private final Supplier<byte[]> snapshot;
+    private Durability durability = Durability.SYNC;
+    private Duration window = Duration.ZERO;
+    private ScheduledExecutorService executor;
+    private boolean dirty;
+    private boolean scheduled;
+    // Ошибка фоновой записи сообщается при следующем обращении к менеджеру
+    private IOException failure;
+
+    SnapshotWriter(File file, Supplier<byte[]> snapshot) {
+        this.file = file;
+        this.snapshot = snapshot;
+    }
+
+    static void writeDurably(File target, byte[] bytes) throws IOException {
+        writeDurably(target, bytes, true);
+    }
+
+    // Без keepPrevious прежняя версия не сохраняется: так пишутся файлы ShardedTaskManager
+    static void writeDurably(File target, byte[] bytes, boolean keepPrevious) throws IOException {
+        Path path = target.toPath();
+        Path temp = path.resolveSibling(target.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        if (keepPrevious && Files.exists(path)) {
+            Files.move(path, previousFile(target).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static File previousFile(File target) {
+        return new File(target.getPath() + ".prev");
+    }
+
+    void setDurability(Durability durability, Duration window) {
+        flush();
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+            this.durability = durability;
+            this.window = window;
+            if (durability == Durability.SYNC) {
+                return;
+            }
+            if (window.isNegative() || window.isZero()) {
+                throw new IllegalArgumentException("Окно записи должно быть положительным");
+            }
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (durability == Durability.PERIODIC) {
+                long period = window.toNanos();
+                executor.scheduleAtFixedRate(this::writePending, period, period, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Вызывается после каждого изменения, пока вызывающий держит монитор менеджера
+    void changed() {
+        Durability current;
+        synchronized (this) {
+            throwFailure();
+            current = durability;
+            if (current != Durability.SYNC) {
+                dirty = true;
+                if (current == Durability.GROUP && !scheduled) {
+                    scheduled = true;
+                    executor.schedule(this::writePending, window.toNanos(), TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+        }
+        write(snapshot.get());
+    }
+
+    // Возвращает управление, когда все изменения до вызова лежат на диске
+    void flush() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+        }
+        if (current != null) {
+            try {
+                current.submit(this::writePending).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание записи снимка прервано", e);
+            } catch (ExecutionException e) {
+                throw new ManagerSaveException("Ошибка сохранения файла", e.getCause());
+            }
+        }
+        synchronized (this) {
+            throwFailure();
+        }
+    }
+
+    void close() {
+        flush();
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    // Снимок снимается вне монитора писателя: менеджер вызывает changed(), держа свой монитор
+    private void writePending() {
+        synchronized (this) {
+            scheduled = false;
+            if (!dirty) return;
+            dirty = false;
+        }
+        try {
+            writeDurably(file, snapshot.get());
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+                failure = e;
+            }
+        }
+    }
+
+    private void write(byte[] bytes) {
+        try {
+            writeDurably(file, bytes);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения файла", e);
+        }
+    }
+
+    private void throwFailure() {
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw new ManagerSaveException("Ошибка фонового сохранения файла", e);
+        }
+    }
+}
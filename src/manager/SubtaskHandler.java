@@ -2,39 +2,43 @@ package manager;
 
 import com.sun.net.httpserver.HttpExchange;
 import model.Subtask;
+import model.Type;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
 
 class SubtaskHandler extends BaseHttpHandler {
-    private final TaskManager taskManager;
-
     public SubtaskHandler(TaskManager taskManager) {
-        this.taskManager = taskManager;
+        super(taskManager);
     }
 
     public void handleGetSubtasks(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-
-        if (pathParts.length == 2) {
+        String etag = etag(Type.SUBTASK);
+        Map<String, String> params = parseQuery(exchange);
+        if (params.isEmpty()) {
             // GET /subtasks
-            String response = gson.toJson(taskManager.getAllSubtasks());
-            sendText(exchange, response);
-        } else if (pathParts.length == 3) {
-            // GET /subtasks/{id}
-            try {
-                int id = Integer.parseInt(pathParts[2]);
-                Optional<Subtask> subtask = taskManager.getSubtask(id);
-                if (subtask.isPresent()) {
-                    String response = gson.toJson(subtask.get());
-                    sendText(exchange, response);
-                } else {
-                    sendNotFound(exchange);
-                }
-            } catch (NumberFormatException e) {
-                sendBadRequest(exchange, "Неверный формат ID");
-            }
+            if (notModified(exchange, etag)) return;
+            sendJsonArray(exchange, taskManager.getAllSubtasks());
+            return;
+        }
+        // GET /subtasks?limit=&cursor=&status=&epicId=&from=&to=&fields=
+        try {
+            TaskQuery query = parseTaskQuery(params);
+            if (notModified(exchange, etag)) return;
+            sendPage(exchange, taskManager.findSubtasks(query), query, params.get("fields"));
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+        }
+    }
+
+    // GET /subtasks/{id}
+    public void handleGetSubtask(HttpExchange exchange, int id) throws IOException {
+        String etag = etag(Type.SUBTASK);
+        Optional<Subtask> subtask = taskManager.getSubtask(id);
+        if (subtask.isPresent()) {
+            if (notModified(exchange, etag)) return;
+            sendJson(exchange, taskManager.toJson(subtask.get()));
         } else {
             sendNotFound(exchange);
         }
@@ -48,8 +52,7 @@ class SubtaskHandler extends BaseHttpHandler {
             if (subtask.getId() == 0) {
                 // Создание новой подзадачи
                 Subtask createdSubtask = taskManager.createSubtask(subtask);
-                String response = gson.toJson(createdSubtask);
-                sendText(exchange, response, 201);
+                sendJson(exchange, taskManager.toJson(createdSubtask), 201);
             } else {
                 // Обновление существующей подзадачи
                 taskManager.updateSubtask(subtask);
@@ -62,20 +65,9 @@ class SubtaskHandler extends BaseHttpHandler {
         }
     }
 
-    public void handleDeleteSubtask(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-
-        if (pathParts.length == 3) {
-            try {
-                int id = Integer.parseInt(pathParts[2]);
-                taskManager.deleteSubtask(id);
-                sendSuccess(exchange);
-            } catch (NumberFormatException e) {
-                sendBadRequest(exchange, "Неверный формат ID");
-            }
-        } else {
-            sendNotFound(exchange);
-        }
+    // DELETE /subtasks/{id}
+    public void handleDeleteSubtask(HttpExchange exchange, int id) throws IOException {
+        taskManager.deleteSubtask(id);
+        sendSuccess(exchange);
     }
 }
\ No newline at end of file
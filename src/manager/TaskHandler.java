@@ -2,46 +2,51 @@ package manager;
 
 import com.sun.net.httpserver.HttpExchange;
 import model.Task;
+import model.Type;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
 
 class TaskHandler extends BaseHttpHandler {
-    private final TaskManager taskManager;
-
     public TaskHandler(TaskManager taskManager) {
-        this.taskManager = taskManager;
+        super(taskManager);
     }
 
     public void handleGetTasks(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-
+        // Версия читается до данных: изменение между ними даст лишний промах, но не устаревший 304
+        String etag = etag(Type.TASK);
         try {
-            if (pathParts.length == 2) {
+            Map<String, String> params = parseQuery(exchange);
+            if (params.isEmpty()) {
                 // GET /tasks
-                String response = gson.toJson(taskManager.getAllTasks());
-                sendText(exchange, response);
-            } else if (pathParts.length == 3) {
-                // GET /tasks/{id}
-                int id = Integer.parseInt(pathParts[2]);
-                Optional<Task> task = taskManager.getTask(id);
-                if (task.isPresent()) {
-                    String response = gson.toJson(task.get());
-                    sendText(exchange, response);
-                } else {
-                    sendNotFound(exchange);
-                }
+                if (notModified(exchange, etag)) return;
+                sendJsonArray(exchange, taskManager.getAllTasks());
             } else {
-                sendNotFound(exchange);
+                // GET /tasks?limit=&cursor=&status=&from=&to=&fields=
+                TaskQuery query = parseTaskQuery(params);
+                if (notModified(exchange, etag)) return;
+                sendPage(exchange, taskManager.findTasks(query), query, params.get("fields"));
             }
-        } catch (NumberFormatException e) {
-            sendBadRequest(exchange, "Неверный формат ID");
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
         } catch (Exception e) {
             sendInternalError(exchange);
         }
     }
 
+    // GET /tasks/{id}
+    public void handleGetTask(HttpExchange exchange, int id) throws IOException {
+        String etag = etag(Type.TASK);
+        Optional<Task> task = taskManager.getTask(id);
+        if (task.isPresent()) {
+            if (notModified(exchange, etag)) return;
+            sendJson(exchange, taskManager.toJson(task.get()));
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
     public void handlePostTask(HttpExchange exchange) throws IOException {
         String body = readRequestBody(exchange);
         System.out.println("Received body: " + body); // Для отладки
@@ -56,8 +61,7 @@ class TaskHandler extends BaseHttpHandler {
             if (task.getId() == 0) {
                 // Создание новой задачи
                 Task createdTask = taskManager.createTask(task);
-                String response = gson.toJson(createdTask);
-                sendText(exchange, response, 201);
+                sendJson(exchange, taskManager.toJson(createdTask), 201);
             } else {
                 // Обновление существующей задачи
                 taskManager.updateTask(task);
@@ -71,22 +75,9 @@ class TaskHandler extends BaseHttpHandler {
         }
     }
 
-    public void handleDeleteTask(HttpExchange exchange) throws IOException {
-        String path = exchange.getRequestURI().getPath();
-        String[] pathParts = path.split("/");
-
-        try {
-            if (pathParts.length == 3) {
-                int id = Integer.parseInt(pathParts[2]);
-                taskManager.deleteTask(id);
-                sendSuccess(exchange);
-            } else {
-                sendNotFound(exchange);
-            }
-        } catch (NumberFormatException e) {
-            sendBadRequest(exchange, "Неверный формат ID");
-        } catch (Exception e) {
-            sendInternalError(exchange);
-        }
+    // DELETE /tasks/{id}
+    public void handleDeleteTask(HttpExchange exchange, int id) throws IOException {
+        taskManager.deleteTask(id);
+        sendSuccess(exchange);
     }
 }
\ No newline at end of file
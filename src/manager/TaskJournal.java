@@ -0,0 +1,179 @@
+package manager;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Журнал изменений рядом со снимком: <file>.journal дописывается по одной записи на операцию,
+// <file>.journal.old хранит журнал, который сейчас сворачивается в снимок фоновым потоком.
+class TaskJournal {
+    static final String UPSERT = "U";
+    static final String DELETE = "D";
+    static final String CLEAR = "C";
+
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File rotatedFile;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private Writer writer;
+    private int records;
+    // Ошибка фоновой свёртки сообщается при следующей записи в журнал или при закрытии.
+    // Не под монитором: close() ждёт завершения свёртки, удерживая его
+    private volatile IOException failure;
+
+    TaskJournal(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile(snapshotFile);
+        this.rotatedFile = rotatedFile(snapshotFile);
+    }
+
+    static boolean exists(File snapshotFile) {
+        return journalFile(snapshotFile).exists() || rotatedFile(snapshotFile).exists();
+    }
+
+    static void delete(File snapshotFile) throws IOException {
+        Files.deleteIfExists(rotatedFile(snapshotFile).toPath());
+        Files.deleteIfExists(journalFile(snapshotFile).toPath());
+    }
+
+    // Записи в порядке применения: сначала сворачиваемый журнал, затем текущий
+    static List<String[]> readRecords(File snapshotFile) throws IOException {
+        List<String[]> result = new ArrayList<>();
+        readRecords(rotatedFile(snapshotFile), result);
+        readRecords(journalFile(snapshotFile), result);
+        return result;
+    }
+
+    synchronized void append(String record) {
+        append(List.of(record));
+    }
+
+    synchronized void append(List<String> batch) {
+        try {
+            if (writer == null) {
+                writer = new BufferedWriter(new FileWriter(journalFile, StandardCharsets.UTF_8, true));
+            }
+            for (String record : batch) {
+                writer.write(record);
+                writer.write('\n');
+            }
+            writer.flush();
+            records += batch.size();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи журнала", e);
+        }
+        // Сама запись уже в журнале, но вызывающий должен узнать, что снимок не обновляется
+        throwFailure();
+    }
+
+    // Свёртка запускается, когда журнал сравнялся по размеру с доской: запись снимка
+    // стоит O(n), и при таком пороге её цена в пересчёте на операцию остаётся O(1)
+    synchronized boolean shouldCompact(int boardSize) {
+        return records >= Math.max(MIN_COMPACTION_RECORDS, boardSize) && !compacting.get();
+    }
+
+    synchronized void compact(byte[] snapshot) {
+        if (!compacting.compareAndSet(false, true)) return;
+        try {
+            closeWriter();
+            if (rotatedFile.exists()) {
+                // Предыдущая свёртка не удалась — не теряем её записи
+                Files.write(rotatedFile.toPath(), Files.readAllBytes(journalFile.toPath()),
+                        StandardOpenOption.APPEND);
+                Files.delete(journalFile.toPath());
+            } else {
+                Files.move(journalFile.toPath(), rotatedFile.toPath());
+            }
+            records = 0;
+        } catch (IOException e) {
+            compacting.set(false);
+            throw new ManagerSaveException("Ошибка ротации журнала", e);
+        }
+        compactor.execute(() -> {
+            try {
+                writeSnapshot(snapshot);
+                Files.deleteIfExists(rotatedFile.toPath());
+            } catch (IOException e) {
+                // Снимок не обновился, но .journal.old остаётся и будет применён при загрузке
+                failure = e;
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    synchronized void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+            closeWriter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия журнала", e);
+        }
+        throwFailure();
+    }
+
+    private void writeSnapshot(byte[] snapshot) throws IOException {
+        SnapshotWriter.writeDurably(snapshotFile, snapshot);
+    }
+
+    private void throwFailure() {
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw new ManagerSaveException("Ошибка свёртки журнала", e);
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    // Оборванная при сбое последняя запись (без перевода строки) отбрасывается читателем
+    private static void readRecords(File file, List<String[]> result) throws IOException {
+        if (!file.exists()) return;
+
+        try (CsvReader reader = new CsvReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String[] record;
+            while ((record = reader.next()) != null) {
+                if (record.length > 1) {
+                    result.add(record);
+                }
+            }
+        }
+    }
+
+    private static File journalFile(File snapshotFile) {
+        return new File(snapshotFile.getPath() + ".journal");
+    }
+
+    private static File rotatedFile(File snapshotFile) {
+        return new File(snapshotFile.getPath() + ".journal.old");
+    }
+}
@@ -3,6 +3,7 @@ package manager;
 import model.Epic;
 import model.Subtask;
 import model.Task;
+import model.Type;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,6 +15,12 @@ public interface TaskManager {
 
     List<Epic> getAllEpics();
 
+    List<Task> findTasks(TaskQuery query);
+
+    List<Subtask> findSubtasks(TaskQuery query);
+
+    List<Epic> findEpics(TaskQuery query);
+
     void deleteAllTasks();
 
     void deleteAllSubtasks();
@@ -44,9 +51,26 @@ public interface TaskManager {
 
     void deleteEpic(int id);
 
+    List<Task> applyBatch(List<BatchOperation> operations) throws TaskValidationException;
+
     List<Subtask> getEpicSubtasks(int epicId);
 
     List<Task> getHistory();
 
+    List<Task> getHistory(int limit);
+
     List<Task> getPrioritizedTasks();
+
+    List<Task> getPrioritizedTasks(boolean includeEpics);
+
+    // Версия коллекции задач, подзадач или эпиков; растёт при каждом изменении коллекции
+    long getVersion(Type type);
+
+    long getHistoryVersion();
+
+    // JSON задачи в UTF-8, как его отдаёт HTTP API
+    byte[] toJson(Task task);
+
+    // События создания, изменения и удаления для GET /events
+    ChangeFeed getChangeFeed();
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package manager;
+
+import model.Subtask;
+import model.Task;
+import util.TaskStatus;
+
+import java.time.LocalDateTime;
+
+// Параметры выборки для списков: страница по курсору (id последнего элемента
+// предыдущей страницы), фильтры по статусу, эпику и времени начала [from, to)
+public class TaskQuery {
+    private int limit = Integer.MAX_VALUE;
+    private int cursor;
+    private TaskStatus status;
+    private Integer epicId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным");
+        }
+        this.limit = limit;
+    }
+
+    public int getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(int cursor) {
+        this.cursor = cursor;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TaskStatus status) {
+        this.status = status;
+    }
+
+    public Integer getEpicId() {
+        return epicId;
+    }
+
+    public void setEpicId(Integer epicId) {
+        this.epicId = epicId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public boolean matches(Task task) {
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (epicId != null && (!(task instanceof Subtask) || ((Subtask) task).getEpicId() != epicId)) {
+            return false;
+        }
+        if (from != null || to != null) {
+            LocalDateTime startTime = task.getStartTime();
+            if (startTime == null) {
+                return false;
+            }
+            if (from != null && startTime.isBefore(from)) {
+                return false;
+            }
+            if (to != null && !startTime.isBefore(to)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
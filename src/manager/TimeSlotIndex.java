@@ -0,0 +1,89 @@
+package manager;
+
+import model.Task;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Индекс занятых временных интервалов [start, end) для проверки пересечений за O(log n).
+// Принятые интервалы не пересекаются, поэтому при сортировке по началу их концы тоже
+// не убывают: достаточно проверить ближайшие интервалы, начинающиеся раньше конца нового.
+class TimeSlotIndex {
+    private final NavigableMap<LocalDateTime, Map<Integer, LocalDateTime>> slotsByStart = new TreeMap<>();
+    private final Map<Integer, LocalDateTime> startById = new HashMap<>();
+
+    void add(Task task) {
+        put(task.getId(), task.getStartTime(), task.getEndTime());
+    }
+
+    void put(int id, LocalDateTime start, LocalDateTime end) {
+        remove(id);
+        if (start == null || end == null) {
+            return;
+        }
+        slotsByStart.computeIfAbsent(start, key -> new HashMap<>()).put(id, end);
+        startById.put(id, start);
+    }
+
+    // Текущий интервал по id — нужен, чтобы откатить пробные изменения индекса
+    LocalDateTime[] get(int id) {
+        LocalDateTime start = startById.get(id);
+        if (start == null) {
+            return null;
+        }
+        return new LocalDateTime[]{start, slotsByStart.get(start).get(id)};
+    }
+
+    void remove(int id) {
+        LocalDateTime start = startById.remove(id);
+        if (start == null) return;
+
+        Map<Integer, LocalDateTime> slots = slotsByStart.get(start);
+        slots.remove(id);
+        if (slots.isEmpty()) {
+            slotsByStart.remove(start);
+        }
+    }
+
+    void clear() {
+        slotsByStart.clear();
+        startById.clear();
+    }
+
+    int size() {
+        return startById.size();
+    }
+
+    boolean hasOverlap(Task task) {
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null) {
+            return false;
+        }
+        return hasOverlap(start, end, task.getId());
+    }
+
+    boolean hasOverlap(LocalDateTime start, LocalDateTime end, int excludeId) {
+        Map.Entry<LocalDateTime, Map<Integer, LocalDateTime>> entry = slotsByStart.lowerEntry(end);
+
+        while (entry != null) {
+            boolean checkedOther = false;
+            for (Map.Entry<Integer, LocalDateTime> slot : entry.getValue().entrySet()) {
+                if (slot.getKey() == excludeId) continue;
+                if (start.isBefore(slot.getValue())) {
+                    return true;
+                }
+                checkedOther = true;
+            }
+            // У более ранних интервалов конец не позже, чем у уже проверенного
+            if (checkedOther) {
+                return false;
+            }
+            entry = slotsByStart.lowerEntry(entry.getKey());
+        }
+        return false;
+    }
+}
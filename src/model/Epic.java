@@ -5,13 +5,18 @@ import util.TaskStatus;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class Epic extends Task {
     private List<Integer> subtaskIds;
+    private LocalDateTime endTime;
+    private transient Aggregates aggregates;
 
     public Epic(int id, String name, String description) {
-        super(id, name, description, TaskStatus.NEW, null, null);
+        super(id, name, description, TaskStatus.NEW, Duration.ZERO, null);
         this.subtaskIds = new ArrayList<>();
     }
 
@@ -31,31 +36,141 @@ public class Epic extends Task {
         subtaskIds.remove(Integer.valueOf(subtaskId));
     }
 
-    @Override
-    public Duration getDuration() {
-        if (getSubtaskIds().isEmpty()) {
-            return Duration.ZERO;
-        }
+    // Вклад подзадачи запоминается при учёте: подзадачу могут изменить на месте до вызова
+    // updateSubtask, и тогда вычитать нужно прежние, а не текущие значения
+    public void updateSubtaskAggregate(Subtask subtask) {
+        Aggregates aggregates = aggregates();
+        aggregates.remove(subtask.getId());
+        aggregates.add(subtask);
+        refreshTimeWindow();
+    }
 
-        return Duration.ofMinutes(60);
+    public void removeSubtaskAggregate(int subtaskId) {
+        aggregates().remove(subtaskId);
+        refreshTimeWindow();
     }
 
-    @Override
-    public LocalDateTime getStartTime() {
-        if (getSubtaskIds().isEmpty()) {
-            return null;
+    public void clearSubtaskAggregates() {
+        aggregates = new Aggregates();
+        refreshTimeWindow();
+    }
+
+    public TaskStatus getAggregatedStatus() {
+        Aggregates aggregates = aggregates();
+        int total = aggregates.contributions.size();
+        if (aggregates.newCount == total) {
+            return TaskStatus.NEW;
+        }
+        if (aggregates.doneCount == total) {
+            return TaskStatus.DONE;
         }
+        return TaskStatus.IN_PROGRESS;
+    }
 
-        return LocalDateTime.now();
+    // Проверка для тестов: совпадают ли накопленные агрегаты с пересчётом по подзадачам
+    public boolean aggregatesMatch(List<Subtask> subtasks) {
+        Aggregates expected = new Aggregates();
+        subtasks.forEach(expected::add);
+        Aggregates actual = aggregates();
+        return expected.contributions.keySet().equals(actual.contributions.keySet())
+               && expected.newCount == actual.newCount
+               && expected.inProgressCount == actual.inProgressCount
+               && expected.doneCount == actual.doneCount
+               && expected.totalDuration.equals(actual.totalDuration)
+               && expected.starts.equals(actual.starts)
+               && expected.ends.equals(actual.ends);
     }
 
+    // Окно эпика хранится в обычных полях и пересчитывается только при изменении подзадач,
+    // поэтому геттеры не выделяют память, а JSON и CSV содержат реальные значения
     @Override
     public LocalDateTime getEndTime() {
-        if (getSubtaskIds().isEmpty()) {
-            return null;
+        return endTime;
+    }
+
+    private void refreshTimeWindow() {
+        Aggregates aggregates = aggregates();
+        setDuration(aggregates.totalDuration);
+        setStartTime(aggregates.starts.isEmpty() ? null : aggregates.starts.firstKey());
+        endTime = aggregates.ends.isEmpty() ? null : aggregates.ends.lastKey();
+    }
+
+    // Эпики из JSON создаются Gson без вызова конструктора, поэтому агрегаты создаются лениво
+    private Aggregates aggregates() {
+        if (aggregates == null) {
+            aggregates = new Aggregates();
+        }
+        return aggregates;
+    }
+
+    private static class Aggregates {
+        private final Map<Integer, Contribution> contributions = new HashMap<>();
+        private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+        private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+        private int newCount;
+        private int inProgressCount;
+        private int doneCount;
+        private Duration totalDuration = Duration.ZERO;
+
+        private void add(Subtask subtask) {
+            Contribution contribution = new Contribution(subtask.getStatus(), subtask.getDuration(),
+                    subtask.getStartTime(), subtask.getEndTime());
+            contributions.put(subtask.getId(), contribution);
+            count(contribution.status, 1);
+            if (contribution.duration != null) {
+                totalDuration = totalDuration.plus(contribution.duration);
+            }
+            if (contribution.startTime != null) {
+                starts.merge(contribution.startTime, 1, Integer::sum);
+            }
+            if (contribution.endTime != null) {
+                ends.merge(contribution.endTime, 1, Integer::sum);
+            }
         }
 
-        return LocalDateTime.now().plusHours(2);
+        private void remove(int subtaskId) {
+            Contribution contribution = contributions.remove(subtaskId);
+            if (contribution == null) return;
+
+            count(contribution.status, -1);
+            if (contribution.duration != null) {
+                totalDuration = totalDuration.minus(contribution.duration);
+            }
+            if (contribution.startTime != null) {
+                decrement(starts, contribution.startTime);
+            }
+            if (contribution.endTime != null) {
+                decrement(ends, contribution.endTime);
+            }
+        }
+
+        private void count(TaskStatus status, int delta) {
+            if (status == TaskStatus.NEW) {
+                newCount += delta;
+            } else if (status == TaskStatus.DONE) {
+                doneCount += delta;
+            } else {
+                inProgressCount += delta;
+            }
+        }
+
+        private static void decrement(TreeMap<LocalDateTime, Integer> counts, LocalDateTime key) {
+            counts.computeIfPresent(key, (time, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private static class Contribution {
+        private final TaskStatus status;
+        private final Duration duration;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        private Contribution(TaskStatus status, Duration duration, LocalDateTime startTime, LocalDateTime endTime) {
+            this.status = status;
+            this.duration = duration;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
     }
 
     @Override
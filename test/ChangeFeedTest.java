@@ -0,0 +1,89 @@
+import manager.ChangeFeed;
+import model.Type;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+    private static final byte[] DATA = "{}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void shouldReplayEventsAfterLastEventId() {
+        ChangeFeed feed = new ChangeFeed(8);
+        for (int i = 0; i < 5; i++) {
+            feed.publish(Type.TASK, ChangeFeed.CREATED, DATA);
+        }
+
+        ChangeFeed.Subscription subscription = feed.subscribe(3, 2);
+        assertFalse(subscription.isReset());
+        assertEquals(4, subscription.poll().getId());
+        assertEquals(5, subscription.poll().getId());
+        assertNull(subscription.poll());
+
+        feed.publishDeleted(Type.SUBTASK, 7);
+        ChangeFeed.Event event = subscription.poll();
+        assertEquals(6, event.getId());
+        assertEquals("subtask.deleted", event.getName());
+        assertEquals("{\"id\":7}", new String(event.getData(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRequestResetWhenEventsWereEvicted() {
+        ChangeFeed feed = new ChangeFeed(4);
+        for (int i = 0; i < 10; i++) {
+            feed.publish(Type.EPIC, ChangeFeed.UPDATED, DATA);
+        }
+
+        assertTrue(feed.subscribe(2, 4).isReset(), "События 3-6 уже вытеснены из кольца");
+        assertFalse(feed.subscribe(6, 4).isReset(), "События 7-10 ещё в кольце");
+        assertTrue(feed.subscribe(11, 4).isReset(), "Номер из другой ленты");
+        ChangeFeed.Subscription fresh = feed.subscribe(-1, 4);
+        assertFalse(fresh.isReset());
+        assertNull(fresh.poll(), "Без Last-Event-ID прошлые события не отдаются");
+        assertEquals(10, fresh.getStartId());
+    }
+
+    @Test
+    void shouldResumeAfterOnlySubscriberWasDropped() {
+        ChangeFeed feed = new ChangeFeed(8);
+        ChangeFeed.Subscription only = feed.subscribe(-1, 1);
+        feed.publish(Type.TASK, ChangeFeed.CREATED, DATA);
+        feed.publish(Type.TASK, ChangeFeed.UPDATED, DATA);
+        assertTrue(only.isDropped());
+        assertFalse(feed.hasSubscribers());
+
+        // Без подписчиков события по-прежнему попадают в кольцо вместе с данными
+        feed.publish(Type.TASK, ChangeFeed.UPDATED, DATA);
+        ChangeFeed.Subscription resumed = feed.subscribe(only.poll().getId(), 4);
+        assertFalse(resumed.isReset());
+        assertEquals(2, resumed.poll().getId());
+        ChangeFeed.Event missed = resumed.poll();
+        assertEquals(3, missed.getId());
+        assertArrayEquals(DATA, missed.getData());
+    }
+
+    @Test
+    void shouldDropSlowSubscriberWithoutBlockingPublisher() {
+        ChangeFeed feed = new ChangeFeed();
+        ChangeFeed.Subscription slow = feed.subscribe(-1, 2);
+        ChangeFeed.Subscription fast = feed.subscribe(-1, 16);
+
+        for (int i = 0; i < 5; i++) {
+            feed.publish(Type.TASK, ChangeFeed.UPDATED, DATA);
+        }
+
+        assertTrue(slow.isDropped());
+        assertFalse(fast.isDropped());
+        // Принятое до отключения дочитывается, дальше клиент продолжает с Last-Event-ID
+        assertEquals(1, slow.poll().getId());
+        assertEquals(2, slow.poll().getId());
+        assertNull(slow.poll());
+        ChangeFeed.Subscription resumed = feed.subscribe(2, 2);
+        assertEquals(3, resumed.poll().getId());
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, fast.poll().getId());
+        }
+    }
+}
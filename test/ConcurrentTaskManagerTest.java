@@ -0,0 +1,136 @@
+import manager.ConcurrentTaskManager;
+import manager.HistoryManager;
+import manager.TaskManager;
+import manager.TaskValidationException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import util.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 500;
+
+    @Override
+    protected TaskManager createTaskManager(HistoryManager historyManager) {
+        return new ConcurrentTaskManager(historyManager);
+    }
+
+    @Test
+    void shouldKeepStateConsistentUnderConcurrentWrites() throws Exception {
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < OPERATIONS; i++) {
+                    int slot = thread * OPERATIONS + i;
+                    Task task = taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                            Duration.ofMinutes(30), start.plusHours(slot)));
+                    Subtask subtask = taskManager.createSubtask(new Subtask(0, "Subtask", "Desc",
+                            TaskStatus.NEW, epic.getId(), null, null));
+                    taskManager.updateSubtask(new Subtask(subtask.getId(), "Subtask", "Desc",
+                            TaskStatus.DONE, epic.getId(), null, null));
+                    taskManager.getTask(task.getId());
+                    taskManager.getPrioritizedTasks();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        List<Task> tasks = taskManager.getAllTasks();
+        Set<Integer> ids = new HashSet<>();
+        tasks.forEach(task -> ids.add(task.getId()));
+        taskManager.getAllSubtasks().forEach(subtask -> ids.add(subtask.getId()));
+
+        assertEquals(THREADS * OPERATIONS, tasks.size(), "Созданные задачи не должны теряться");
+        assertEquals(THREADS * OPERATIONS * 2, ids.size(), "Идентификаторы должны быть уникальными");
+        assertEquals(THREADS * OPERATIONS, taskManager.getPrioritizedTasks().size());
+        assertEquals(THREADS * OPERATIONS, taskManager.getEpicSubtasks(epic.getId()).size());
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(epic.getId()).orElseThrow().getStatus());
+        assertEquals(THREADS * OPERATIONS + 1, taskManager.getHistory().size());
+    }
+
+    @Test
+    void shouldRejectOverlapsRacingForTheSameSlot() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                            Duration.ofHours(1), start));
+                    return true;
+                } catch (TaskValidationException e) {
+                    return false;
+                }
+            }));
+        }
+        int created = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get()) created++;
+        }
+        executor.shutdown();
+
+        assertEquals(1, created, "Слот должна занять ровно одна задача");
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldRecordConcurrentViewsInHistory() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            ids.add(taskManager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW, null, null)).getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> ids.forEach(taskManager::getTask)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Task> history = taskManager.getHistory();
+        Set<Integer> viewed = new HashSet<>();
+        history.forEach(task -> viewed.add(task.getId()));
+        assertEquals(OPERATIONS, history.size(), "Каждая задача должна попасть в историю один раз");
+        assertEquals(new HashSet<>(ids), viewed);
+
+        // Последовательные просмотры одного потока сохраняют порядок
+        taskManager.getTask(ids.get(1));
+        taskManager.getTask(ids.get(0));
+        history = taskManager.getHistory();
+        assertEquals(ids.get(1), history.get(history.size() - 2).getId());
+        assertEquals(ids.get(0), history.get(history.size() - 1).getId());
+
+        taskManager.deleteTask(ids.get(0));
+        assertFalse(taskManager.getHistory().stream().anyMatch(task -> task.getId() == ids.get(0)),
+                "Удалённая задача не должна остаться в истории");
+    }
+}
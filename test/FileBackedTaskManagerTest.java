@@ -0,0 +1,451 @@
+import manager.BatchOperation;
+import manager.Durability;
+import manager.FileBackedTaskManager;
+import manager.ManagerSaveException;
+import manager.ShardedTaskManager;
+import manager.SnapshotFormat;
+import manager.TaskValidationException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import model.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import util.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBackedTaskManagerTest {
+    private Path dir;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("kanban");
+        file = dir.resolve("tasks.csv").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void shouldRestoreTasksFromSnapshot() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        Task task = manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 10, 0)));
+        Epic epic = manager.createEpic(new Epic(0, "Epic", "Desc"));
+        manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.DONE, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 12, 0)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals(task.getName(), loaded.getAllTasks().get(0).getName());
+        assertEquals(1, loaded.getEpicSubtasks(epic.getId()).size());
+        assertEquals(TaskStatus.DONE, loaded.getAllEpics().get(0).getStatus());
+    }
+
+    @Test
+    void shouldReplayJournalOnLoad() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true);
+        Task task = manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 10, 0)));
+        Task removed = manager.createTask(new Task(0, "Removed", "Desc", TaskStatus.NEW, null, null));
+        Epic epic = manager.createEpic(new Epic(0, "Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW,
+                epic.getId(), null, null));
+
+        manager.updateTask(new Task(task.getId(), "Updated", "Desc", TaskStatus.DONE,
+                Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 10, 0)));
+        manager.updateSubtask(new Subtask(subtask.getId(), "Subtask", "Desc", TaskStatus.IN_PROGRESS,
+                epic.getId(), null, null));
+        manager.deleteTask(removed.getId());
+        manager.close();
+
+        assertFalse(file.exists(), "В режиме журнала снимок не должен переписываться на каждую операцию");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, true);
+
+        assertEquals(1, loaded.getAllTasks().size());
+        assertEquals("Updated", loaded.getAllTasks().get(0).getName());
+        assertEquals(TaskStatus.IN_PROGRESS, loaded.getAllEpics().get(0).getStatus());
+
+        loaded.deleteEpic(epic.getId());
+        loaded.close();
+        assertTrue(FileBackedTaskManager.loadFromFile(file, true).getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void shouldCompactJournalIntoSnapshot() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true);
+        for (int i = 0; i < 2500; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+        }
+        manager.close();
+
+        assertTrue(file.exists(), "Журнал должен быть свёрнут в снимок");
+        assertEquals(2500, FileBackedTaskManager.loadFromFile(file, true).getAllTasks().size());
+
+        FileBackedTaskManager plain = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(2500, plain.getAllTasks().size());
+        assertFalse(new File(file.getPath() + ".journal").exists());
+    }
+
+    @Test
+    void shouldReportFailedCompaction() throws TaskValidationException, IOException {
+        // Каталог на месте временного файла не даёт записать снимок
+        Files.createDirectory(Path.of(file.getPath() + ".tmp"));
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true);
+        for (int i = 0; i < 1000; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+        }
+
+        assertThrows(ManagerSaveException.class, manager::close);
+        assertFalse(file.exists());
+        assertEquals(1000, FileBackedTaskManager.loadFromFile(file, true).getAllTasks().size());
+    }
+
+    @Test
+    void shouldPersistBatchOnce() throws TaskValidationException, IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true);
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            operations.add(BatchOperation.create(new Task(0, "Task " + i, "Desc", TaskStatus.NEW,
+                    Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i))));
+        }
+        operations.add(BatchOperation.create(new Task(0, "Overlap", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 0, 10))));
+
+        assertThrows(TaskValidationException.class, () -> manager.applyBatch(operations));
+        assertFalse(new File(file.getPath() + ".journal").exists(), "Отклонённый пакет не должен сохраняться");
+
+        manager.applyBatch(operations.subList(0, 10));
+        manager.close();
+
+        assertEquals(10, Files.readAllLines(Path.of(file.getPath() + ".journal")).size());
+        assertEquals(10, FileBackedTaskManager.loadFromFile(file, true).getAllTasks().size());
+    }
+
+    @Test
+    void shouldRoundTripBinarySnapshot() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, false, SnapshotFormat.BINARY);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0, 15, 500);
+        Task task = manager.createTask(new Task(0, "Задача", "Описание", TaskStatus.IN_PROGRESS,
+                Duration.ofMinutes(90), start));
+        manager.createTask(new Task(0, null, "Описание", TaskStatus.NEW, null, null));
+        Epic epic = manager.createEpic(new Epic(0, "Epic", "Desc"));
+        manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.DONE, epic.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(1960, 5, 1, 12, 0)));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+
+        assertEquals(SnapshotFormat.BINARY, loaded.getFormat());
+        Task restored = loaded.getTask(task.getId()).orElseThrow();
+        assertEquals("Задача", restored.getName());
+        assertEquals(TaskStatus.IN_PROGRESS, restored.getStatus());
+        assertEquals(Duration.ofMinutes(90), restored.getDuration());
+        assertEquals(start, restored.getStartTime());
+        assertNull(loaded.getAllTasks().get(1).getName());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).orElseThrow().getStatus());
+        assertEquals(LocalDateTime.of(1960, 5, 1, 12, 0), loaded.getAllSubtasks().get(0).getStartTime());
+        assertEquals(epic.getId() + 2, loaded.createEpic(new Epic(0, "Next", "Desc")).getId());
+    }
+
+    @Test
+    void shouldConvertBetweenCsvAndBinary() throws TaskValidationException, IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true);
+        for (int i = 0; i < 10; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW,
+                    Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i)));
+        }
+        manager.close();
+
+        File binary = dir.resolve("tasks.bin").toFile();
+        File csv = dir.resolve("back.csv").toFile();
+        FileBackedTaskManager.convert(file, binary, SnapshotFormat.BINARY);
+        FileBackedTaskManager.convert(binary, csv, SnapshotFormat.CSV);
+
+        assertTrue(Files.size(binary.toPath()) < Files.size(csv.toPath()), "Двоичный снимок должен быть компактнее");
+        assertEquals(SnapshotFormat.BINARY, FileBackedTaskManager.loadFromFile(binary).getFormat());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(csv);
+        assertEquals(SnapshotFormat.CSV, loaded.getFormat());
+        assertEquals(manager.getAllTasks().toString(), loaded.getAllTasks().toString());
+    }
+
+    @Test
+    void shouldCompactJournalIntoBinarySnapshot() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true, SnapshotFormat.BINARY);
+        for (int i = 0; i < 2500; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+        }
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, true);
+        assertEquals(SnapshotFormat.BINARY, loaded.getFormat());
+        assertEquals(2500, loaded.getAllTasks().size());
+    }
+
+    @Test
+    void shouldRebuildIndexesOnLoad() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, Duration.ofHours(1), start));
+        Epic first = manager.createEpic(new Epic(0, "First", "Desc"));
+        Epic second = manager.createEpic(new Epic(0, "Second", "Desc"));
+        Subtask early = manager.createSubtask(new Subtask(0, "Early", "Desc", TaskStatus.DONE, second.getId(),
+                Duration.ofHours(1), start.minusHours(2)));
+        manager.createSubtask(new Subtask(0, "Late", "Desc", TaskStatus.NEW, first.getId(),
+                Duration.ofHours(1), start.plusHours(2)));
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, true);
+
+        assertEquals(List.of(early.getId(), task.getId(), early.getId() + 1),
+                loaded.getPrioritizedTasks().stream().map(Task::getId).toList(),
+                "Загруженные задачи должны попасть в список по приоритету");
+        assertThrows(TaskValidationException.class, () -> loaded.createTask(new Task(0, "Overlap", "Desc",
+                TaskStatus.NEW, Duration.ofMinutes(30), start.plusMinutes(15))));
+        assertEquals(TaskStatus.DONE, loaded.getEpic(second.getId()).orElseThrow().getStatus());
+        assertEquals(List.of(early.getId()), loaded.getEpic(second.getId()).orElseThrow().getSubtaskIds());
+        assertEquals(List.of("snapshot", "journal", "relink", "index"),
+                List.copyOf(loaded.getLoadTimings().keySet()));
+    }
+
+    @Test
+    void shouldCoalesceWritesInGroupCommitMode() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        manager.setDurability(Durability.GROUP, Duration.ofMinutes(1));
+        for (int i = 0; i < 100; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+        }
+        assertFalse(file.exists(), "Внутри окна снимок не должен записываться");
+
+        manager.flush();
+        assertEquals(100, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        manager.deleteTask(1);
+        manager.close();
+        assertEquals(99, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+    }
+
+    @Test
+    void shouldWritePeriodically() throws TaskValidationException, InterruptedException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        manager.setDurability(Durability.PERIODIC, Duration.ofMillis(20));
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!file.exists() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        manager.close();
+        assertEquals(1, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+    }
+
+    @Test
+    void shouldFallBackToPreviousSnapshotWhenCurrentIsTorn() throws TaskValidationException, IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            File snapshot = dir.resolve("torn-" + format).toFile();
+            FileBackedTaskManager manager = new FileBackedTaskManager(snapshot, false, format);
+            for (int i = 0; i < 20; i++) {
+                manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+            }
+            // Предыдущее поколение — 19 задач, текущее — 20
+            byte[] current = Files.readAllBytes(snapshot.toPath());
+
+            Random random = new Random(42);
+            for (int attempt = 0; attempt < 50; attempt++) {
+                int offset = random.nextInt(current.length);
+                Files.write(snapshot.toPath(), Arrays.copyOf(current, offset));
+
+                FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(snapshot);
+                assertTrue(loaded.isRecoveredFromPrevious(), format + ", обрыв на байте " + offset);
+                assertEquals(19, loaded.getAllTasks().size(), format + ", обрыв на байте " + offset);
+            }
+        }
+    }
+
+    @Test
+    void shouldDetectCorruptedBytes() throws TaskValidationException, IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, false, SnapshotFormat.BINARY);
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+
+        byte[] current = Files.readAllBytes(file.toPath());
+        current[current.length / 2] ^= 0x10;
+        Files.write(file.toPath(), current);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertTrue(loaded.isRecoveredFromPrevious());
+        assertNotNull(loaded.getRecoveryCause());
+        assertEquals(1, loaded.getAllTasks().size());
+        // Восстановленное поколение записывается заново как текущее
+        assertFalse(FileBackedTaskManager.loadFromFile(file).isRecoveredFromPrevious());
+    }
+
+    @Test
+    void shouldKeepCurrentSnapshotWhenWriterDiesMidWrite() throws TaskValidationException, IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        byte[] next = Files.readAllBytes(file.toPath());
+
+        // Запись нового снимка оборвалась до переименования: остался неполный .tmp
+        Files.write(Path.of(file.getPath() + ".tmp"), Arrays.copyOf(next, next.length / 2));
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertFalse(loaded.isRecoveredFromPrevious());
+        assertEquals(1, loaded.getAllTasks().size());
+
+        // Сбой между переносом текущего снимка в .prev и переименованием нового
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        Files.delete(file.toPath());
+        loaded = FileBackedTaskManager.loadFromFile(file);
+        assertTrue(loaded.isRecoveredFromPrevious());
+        assertEquals(1, loaded.getAllTasks().size());
+    }
+
+    @Test
+    void shouldPreserveCommasQuotesAndNewlines() throws TaskValidationException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, true);
+        String name = "Купить молоко, хлеб";
+        String description = "Строка 1\nСтрока \"2\",\r\nконец";
+        Task task = manager.createTask(new Task(0, name, description, TaskStatus.NEW, null, null));
+        manager.createTask(new Task(0, "", null, TaskStatus.NEW, null, null));
+        manager.close();
+
+        FileBackedTaskManager replayed = FileBackedTaskManager.loadFromFile(file, true);
+        assertEquals(name, replayed.getTask(task.getId()).orElseThrow().getName());
+        assertEquals(description, replayed.getTask(task.getId()).orElseThrow().getDescription());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(description, loaded.getTask(task.getId()).orElseThrow().getDescription());
+        assertEquals("", loaded.getAllTasks().get(1).getName());
+        assertNull(loaded.getAllTasks().get(1).getDescription());
+    }
+
+    @Test
+    void shouldRestoreShardsAndLoadSubtasksLazily() throws TaskValidationException {
+        File shards = dir.resolve("board").toFile();
+        ShardedTaskManager manager = new ShardedTaskManager(shards);
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        Epic first = manager.createEpic(new Epic(0, "First", "Desc"));
+        Epic second = manager.createEpic(new Epic(0, "Second", "Desc"));
+        manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.DONE, first.getId(),
+                Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 12, 0)));
+        manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW, second.getId(), null, null));
+
+        ShardedTaskManager loaded = new ShardedTaskManager(shards);
+        assertEquals(2, loaded.getUnloadedEpicCount());
+        assertEquals(1, loaded.getAllTasks().size());
+
+        assertEquals(TaskStatus.DONE, loaded.getEpic(first.getId()).orElseThrow().getStatus());
+        assertEquals(1, loaded.getEpicSubtasks(first.getId()).size());
+        assertEquals(1, loaded.getUnloadedEpicCount(), "Второй эпик не должен загружаться");
+
+        assertEquals(2, loaded.getAllSubtasks().size());
+        assertEquals(0, loaded.getUnloadedEpicCount());
+        Task created = loaded.createTask(new Task(0, "Next", "Desc", TaskStatus.NEW, null, null));
+        assertTrue(created.getId() > 5, "Идентификаторы не должны повторяться");
+    }
+
+    @Test
+    void shouldLoadOnlyOverlappingEpicsOnWrite() throws TaskValidationException {
+        File shards = dir.resolve("board").toFile();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        ShardedTaskManager manager = new ShardedTaskManager(shards);
+        Epic first = manager.createEpic(new Epic(0, "First", "Desc"));
+        Epic second = manager.createEpic(new Epic(0, "Second", "Desc"));
+        manager.createEpic(new Epic(0, "Empty", "Desc"));
+        manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW, first.getId(),
+                Duration.ofHours(1), start));
+        manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW, second.getId(),
+                Duration.ofHours(1), start.plusDays(1)));
+
+        ShardedTaskManager loaded = new ShardedTaskManager(shards);
+        long epicVersion = loaded.getVersion(Type.EPIC);
+        loaded.createTask(new Task(0, "Untimed", "Desc", TaskStatus.NEW, null, null));
+        loaded.createTask(new Task(0, "Free slot", "Desc", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(2)));
+        assertEquals(3, loaded.getUnloadedEpicCount(), "Эпики вне интервала задачи не загружаются");
+
+        assertThrows(TaskValidationException.class, () -> loaded.createTask(new Task(0, "Overlap", "Desc",
+                TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(30))));
+        assertEquals(2, loaded.getUnloadedEpicCount());
+
+        loaded.getEpic(second.getId());
+        assertEquals(1, loaded.getUnloadedEpicCount());
+        assertEquals(epicVersion, loaded.getVersion(Type.EPIC), "Загрузка эпика не меняет версию");
+    }
+
+    @Test
+    void shouldKeepSubtasksOfMissingEpicsAfterReopen() throws TaskValidationException {
+        File shards = dir.resolve("board").toFile();
+        ShardedTaskManager manager = new ShardedTaskManager(shards);
+        Epic epic = manager.createEpic(new Epic(0, "Epic", "Desc"));
+        Subtask orphan = manager.createSubtask(new Subtask(0, "Orphan", "Desc", TaskStatus.NEW, 999, null, null));
+        Subtask moved = manager.createSubtask(new Subtask(0, "Moved", "Desc", TaskStatus.DONE, epic.getId(),
+                null, null));
+        manager.updateSubtask(new Subtask(moved.getId(), "Moved", "Desc", TaskStatus.DONE, 998, null, null));
+
+        ShardedTaskManager loaded = new ShardedTaskManager(shards);
+        assertEquals(2, loaded.getAllSubtasks().size());
+        assertEquals(999, loaded.getSubtask(orphan.getId()).orElseThrow().getEpicId());
+        assertEquals(998, loaded.getSubtask(moved.getId()).orElseThrow().getEpicId());
+        assertTrue(loaded.getEpicSubtasks(epic.getId()).isEmpty());
+        assertEquals(TaskStatus.NEW, loaded.getEpic(epic.getId()).orElseThrow().getStatus());
+
+        // Возвращённая в эпик подзадача уходит из tasks.csv в шард эпика
+        loaded.updateSubtask(new Subtask(moved.getId(), "Moved", "Desc", TaskStatus.DONE, epic.getId(), null, null));
+        loaded.deleteSubtask(orphan.getId());
+        ShardedTaskManager reopened = new ShardedTaskManager(shards);
+        assertEquals(1, reopened.getAllSubtasks().size());
+        assertEquals(1, reopened.getEpicSubtasks(epic.getId()).size());
+        assertEquals(TaskStatus.DONE, reopened.getEpic(epic.getId()).orElseThrow().getStatus());
+        assertTrue(reopened.getAllTasks().isEmpty(), "Подзадачи из tasks.csv не становятся задачами");
+    }
+
+    @Test
+    void shouldRewriteOnlyDirtyShards() throws TaskValidationException, IOException {
+        File shards = dir.resolve("board").toFile();
+        ShardedTaskManager manager = new ShardedTaskManager(shards);
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        Epic first = manager.createEpic(new Epic(0, "First", "Desc"));
+        Epic second = manager.createEpic(new Epic(0, "Second", "Desc"));
+        Path tasksShard = shards.toPath().resolve("tasks.csv");
+        Path firstShard = shards.toPath().resolve("epic-" + first.getId() + ".csv");
+        Path secondShard = shards.toPath().resolve("epic-" + second.getId() + ".csv");
+        Object tasksKey = Files.readAttributes(tasksShard, "fileKey").get("fileKey");
+        Object firstKey = Files.readAttributes(firstShard, "fileKey").get("fileKey");
+        String secondBefore = Files.readString(secondShard);
+        Object secondKey = Files.readAttributes(secondShard, "fileKey").get("fileKey");
+
+        manager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW, second.getId(), null, null));
+
+        // Каждая запись подменяет файл новым, поэтому переписанный файл получает новый fileKey
+        assertEquals(tasksKey, Files.readAttributes(tasksShard, "fileKey").get("fileKey"));
+        assertEquals(firstKey, Files.readAttributes(firstShard, "fileKey").get("fileKey"));
+        assertNotEquals(secondKey, Files.readAttributes(secondShard, "fileKey").get("fileKey"));
+        assertNotEquals(secondBefore, Files.readString(secondShard));
+
+        manager.deleteEpic(first.getId());
+        assertFalse(Files.exists(firstShard));
+        assertEquals(1, new ShardedTaskManager(shards).getAllEpics().size());
+    }
+}
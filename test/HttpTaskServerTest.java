@@ -1,23 +1,40 @@
 import com.google.gson.Gson;
+import manager.ChangeFeed;
 import manager.HttpTaskServer;
 import manager.Managers;
 import manager.TaskManager;
+import model.Epic;
+import model.Subtask;
 import model.Task;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import util.TaskStatus;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class HttpTaskServerTest {
     private static final String BASE_URL = "http://localhost:8080";
@@ -96,4 +113,301 @@ class HttpTaskServerTest {
         HttpResponse<String> response = sendGet("/tasks");
         assertEquals(200, response.statusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConcurrentRequestsOnVirtualThreads() throws Exception {
+        TaskManager concurrentManager = Managers.getConcurrent();
+        HttpTaskServer concurrentServer = new HttpTaskServer(concurrentManager, 8081, 64,
+                HttpTaskServer.createExecutor("virtual"));
+        concurrentServer.start();
+        try {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                Task task = new Task(0, "Task " + i, "Desc", TaskStatus.NEW,
+                        Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i));
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8081/tasks"))
+                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                        .build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(201, response.get().statusCode());
+            }
+            assertEquals(50, concurrentManager.getAllTasks().size());
+        } finally {
+            concurrentServer.stop();
+        }
+    }
+
+    @Test
+    void testPaginatedAndProjectedTaskList() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Desc", TaskStatus.NEW,
+                    Duration.ofMinutes(30), LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i)));
+        }
+
+        HttpResponse<String> response = sendGet("/tasks?limit=2&fields=id,name");
+        assertEquals(200, response.statusCode());
+        assertEquals("[{\"id\":1,\"name\":\"Task 0\"},{\"id\":2,\"name\":\"Task 1\"}]", response.body());
+        String cursor = response.headers().firstValue("X-Next-Cursor").orElseThrow();
+
+        HttpResponse<String> nextPage = sendGet("/tasks?limit=2&fields=id&cursor=" + cursor);
+        assertEquals("[{\"id\":3}]", nextPage.body());
+        assertTrue(nextPage.headers().firstValue("X-Next-Cursor").isEmpty());
+
+        assertEquals(400, sendGet("/tasks?status=UNKNOWN").statusCode());
+    }
+
+    @Test
+    void testBatchEndpoint() throws IOException, InterruptedException {
+        String batch = "[{\"action\":\"CREATE\",\"type\":\"TASK\",\"task\":{\"name\":\"A\",\"description\":\"D\","
+                       + "\"status\":\"NEW\",\"duration\":30,\"startTime\":\"2024-01-01T10:00:00\"}},"
+                       + "{\"action\":\"CREATE\",\"type\":\"EPIC\",\"task\":{\"name\":\"E\",\"description\":\"D\"}}]";
+
+        HttpResponse<String> response = sendPost("/batch", batch);
+
+        assertEquals(200, response.statusCode());
+        assertEquals(1, manager.getAllTasks().size());
+        assertEquals(1, manager.getAllEpics().size());
+        assertEquals(400, sendPost("/batch", "[{\"action\":\"MOVE\"}]").statusCode());
+    }
+
+    @Test
+    void testConditionalGetReturnsNotModifiedUntilCollectionChanges() throws Exception {
+        manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        HttpResponse<String> first = sendGet("/tasks");
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> cached = sendGetIfNoneMatch("/tasks", etag);
+        assertEquals(304, cached.statusCode());
+        assertEquals("", cached.body());
+        assertEquals(304, sendGetIfNoneMatch("/tasks", "\"other\", W/" + etag).statusCode());
+
+        // Изменение другой коллекции не трогает метку задач
+        HttpResponse<String> epics = sendGet("/epics");
+        manager.createEpic(new Epic(0, "Epic", "Desc"));
+        assertEquals(304, sendGetIfNoneMatch("/tasks", etag).statusCode());
+        assertEquals(200, sendGetIfNoneMatch("/epics", epics.headers().firstValue("ETag").orElseThrow())
+                .statusCode());
+
+        manager.createTask(new Task(0, "Other", "Desc", TaskStatus.NEW, null, null));
+        HttpResponse<String> changed = sendGetIfNoneMatch("/tasks", etag);
+        assertEquals(200, changed.statusCode());
+        assertTrue(changed.body().contains("Other"));
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+
+        // Просмотр меняет историю, поэтому её метка тоже меняется
+        String historyEtag = sendGet("/history").headers().firstValue("ETag").orElseThrow();
+        sendGet("/tasks/1");
+        assertEquals(200, sendGetIfNoneMatch("/history", historyEtag).statusCode());
+
+        // При той же версии истории метка другой сессии не подходит
+        HttpRequest alice = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/history"))
+                .header(HttpTaskServer.SESSION_HEADER, "alice")
+                .GET()
+                .build();
+        String aliceEtag = client.send(alice, HttpResponse.BodyHandlers.ofString()).headers()
+                .firstValue("ETag").orElseThrow();
+        HttpRequest bob = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/history"))
+                .header(HttpTaskServer.SESSION_HEADER, "bob \"quoted\"")
+                .header("If-None-Match", aliceEtag)
+                .GET()
+                .build();
+        HttpResponse<String> bobResponse = client.send(bob, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, bobResponse.statusCode());
+        assertTrue(bobResponse.headers().firstValue("ETag").orElseThrow().matches("\"[^ \"]+\""));
+    }
+
+    private HttpResponse<String> sendGetIfNoneMatch(String path, String etag)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + path))
+                .header("If-None-Match", etag)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testGzipNegotiatedForLargeResponsesAndRequestBodies() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            manager.createTask(new Task(0, "Task " + i, "Description " + i, TaskStatus.NEW, null, null));
+        }
+        String plain = sendGet("/tasks").body();
+
+        HttpResponse<byte[]> compressed = sendGetAcceptEncoding("/tasks", "deflate;q=0.5, gzip");
+        assertEquals(200, compressed.statusCode());
+        assertEquals("gzip", compressed.headers().firstValue("Content-Encoding").orElse(null));
+        assertTrue(compressed.headers().allValues("Vary").contains("Accept-Encoding"));
+        assertTrue(compressed.body().length < plain.length(), "Сжатый ответ должен быть меньше исходного");
+        assertEquals(plain, new String(new GZIPInputStream(new ByteArrayInputStream(compressed.body()))
+                .readAllBytes(), StandardCharsets.UTF_8));
+
+        // У сжатого представления своя сильная метка, но по ней тоже приходит 304
+        String plainEtag = sendGet("/tasks").headers().firstValue("ETag").orElseThrow();
+        String gzipEtag = compressed.headers().firstValue("ETag").orElseThrow();
+        assertEquals(plainEtag.substring(0, plainEtag.length() - 1) + "-gzip\"", gzipEtag);
+        assertEquals(304, sendGetIfNoneMatch("/tasks", gzipEtag).statusCode());
+
+        // Ответ меньше порога уходит без сжатия, как и ответ клиенту без Accept-Encoding
+        HttpResponse<byte[]> small = sendGetAcceptEncoding("/tasks/1", "gzip");
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty());
+        assertTrue(new String(small.body(), StandardCharsets.UTF_8).contains("Task 0"));
+        assertTrue(sendGetAcceptEncoding("/tasks", "identity").headers().firstValue("Content-Encoding").isEmpty());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(body)) {
+            gzip.write(gson.toJson(new Task(0, "Zipped", "Desc", TaskStatus.NEW, null, null))
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks"))
+                .header("Content-Type", "application/json")
+                .header("Content-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        assertEquals(201, client.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertTrue(manager.getAllTasks().stream().anyMatch(task -> task.getName().equals("Zipped")));
+
+        HttpRequest brotli = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/tasks"))
+                .header("Content-Encoding", "br")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        HttpResponse<String> unsupported = client.send(brotli, HttpResponse.BodyHandlers.ofString());
+        assertEquals(415, unsupported.statusCode());
+        assertEquals("gzip, deflate", unsupported.headers().firstValue("Accept-Encoding").orElse(null));
+
+        // Несколько десятков килобайт нулей в gzip разворачиваются больше допустимого размера
+        ByteArrayOutputStream bomb = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bomb)) {
+            byte[] zeros = new byte[1024 * 1024];
+            for (int i = 0; i < 17; i++) {
+                gzip.write(zeros);
+            }
+        }
+        HttpRequest oversized = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/batch"))
+                .header("Content-Encoding", "gzip")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(bomb.toByteArray()))
+                .build();
+        assertEquals(413, client.send(oversized, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private HttpResponse<byte[]> sendGetAcceptEncoding(String path, String acceptEncoding)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + path))
+                .header("Accept-Encoding", acceptEncoding)
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void testRoutingWithTypedPathParameters() throws Exception {
+        Epic epic = manager.createEpic(new Epic(0, "Epic", "Desc"));
+        manager.createSubtask(new Subtask(0, "Sub", "Desc", TaskStatus.NEW, epic.getId(), null, null));
+
+        HttpResponse<String> subtasks = sendGet("/epics/" + epic.getId() + "/subtasks");
+        assertEquals(200, subtasks.statusCode());
+        assertTrue(subtasks.body().contains("Sub"));
+        assertEquals(200, sendGet("/epics/" + epic.getId() + "/").statusCode());
+
+        // Нечисловой параметр отсекается до обработчика, лишние сегменты и методы — 404
+        assertEquals(400, sendGet("/epics/abc/subtasks").statusCode());
+        assertEquals(400, sendDelete("/tasks/abc").statusCode());
+        assertEquals(404, sendGet("/epics/" + epic.getId() + "/tasks").statusCode());
+        assertEquals(404, sendGet("/tasks/1/2").statusCode());
+        assertEquals(404, sendGet("/tasksx").statusCode());
+        assertEquals(404, sendGet("/").statusCode());
+        assertEquals(404, sendDelete("/history").statusCode());
+    }
+
+    @Test
+    void testEventStreamPushesChangesAndResumesFromLastEventId() throws Exception {
+        HttpResponse<Stream<String>> response = openEvents(null);
+        assertEquals(200, response.statusCode());
+        assertEquals("text/event-stream;charset=utf-8", response.headers().firstValue("Content-Type").orElse(null));
+        Iterator<String> lines = response.body().iterator();
+
+        manager.createTask(new Task(0, "First", "Desc", TaskStatus.NEW, null, null));
+        manager.createTask(new Task(0, "Second", "Desc", TaskStatus.NEW, null, null));
+        Map<String, String> first = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> nextEvent(lines));
+        assertEquals("task.created", first.get("event"));
+        assertTrue(first.get("data").contains("First"));
+        response.body().close();
+
+        // Переподключение с Last-Event-ID дочитывает пропущенное
+        Iterator<String> resumed = openEvents(first.get("id")).body().iterator();
+        Map<String, String> second = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> nextEvent(resumed));
+        assertEquals("task.created", second.get("event"));
+        assertTrue(second.get("data").contains("Second"));
+
+        // Номер от другого запуска сервера — клиент должен перечитать списки
+        Iterator<String> foreign = openEvents("other-1").body().iterator();
+        assertEquals("reset", assertTimeoutPreemptively(Duration.ofSeconds(5), () -> nextEvent(foreign)).get("event"));
+    }
+
+    @Test
+    void testEventStreamResumesAfterOnlySubscriberDisconnected() throws Exception {
+        Task task = manager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        HttpResponse<Stream<String>> response = openEvents(null);
+        Iterator<String> lines = response.body().iterator();
+        manager.updateTask(new Task(task.getId(), "Seen", "Desc", TaskStatus.NEW, null, null));
+        Map<String, String> seen = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> nextEvent(lines));
+        response.body().close();
+
+        // Сервер замечает обрыв только при записи в поток
+        ChangeFeed feed = manager.getChangeFeed();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (feed.hasSubscribers()) {
+                manager.updateTask(new Task(task.getId(), "Ping", "Desc", TaskStatus.NEW, null, null));
+                Thread.sleep(50);
+            }
+        });
+        manager.updateTask(new Task(task.getId(), "Missed", "Desc", TaskStatus.DONE, null, null));
+
+        Iterator<String> resumed = openEvents(seen.get("id")).body().iterator();
+        Map<String, String> event = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            Map<String, String> next;
+            do {
+                next = nextEvent(resumed);
+                assertNotEquals("reset", next.get("event"));
+            } while (!next.get("data").contains("Missed"));
+            return next;
+        });
+        assertEquals("task.updated", event.get("event"));
+    }
+
+    private HttpResponse<Stream<String>> openEvents(String lastEventId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + "/events"))
+                .GET();
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+    }
+
+    // Поля следующего события SSE до пустой строки; блоки без event (retry:, комментарии) пропускаются
+    private static Map<String, String> nextEvent(Iterator<String> lines) {
+        Map<String, String> fields = new HashMap<>();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.isEmpty()) {
+                if (fields.containsKey("event")) {
+                    return fields;
+                }
+                fields.clear();
+            } else if (!line.startsWith(":")) {
+                int separator = line.indexOf(':');
+                fields.put(line.substring(0, separator), line.substring(separator + 1).trim());
+            }
+        }
+        throw new AssertionError("Поток событий закрыт");
+    }
+}
@@ -1,6 +1,7 @@
 import manager.HistoryManager;
 import manager.InMemoryHistoryManager;
 import manager.Managers;
+import manager.SessionHistoryManager;
 import model.Task;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -63,4 +64,79 @@ class InMemoryHistoryManagerTest {
         List<Task> history = historyManager.getHistory();
         assertEquals(1, history.size(), "История не должна содержать дубликаты");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldEvictLeastRecentlyViewedWhenFull() {
+        HistoryManager historyManager = Managers.getBoundedHistory(3);
+        for (int i = 1; i <= 3; i++) {
+            historyManager.add(new Task(i, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+        }
+        // Повторный просмотр делает первую задачу самой свежей
+        historyManager.add(new Task(1, "Task 1", "Desc", TaskStatus.NEW, null, null));
+        historyManager.add(new Task(4, "Task 4", "Desc", TaskStatus.NEW, null, null));
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(List.of(3, 1, 4), history.stream().map(Task::getId).toList(),
+                "Должна вытесняться задача, которую дольше всех не просматривали");
+        assertEquals(3, historyManager.size());
+        assertTrue(historyManager.estimatedMemoryBytes() > 0, "Память истории должна учитываться");
+    }
+
+    @Test
+    void shouldKeepSeparateHistoryPerSession() {
+        SessionHistoryManager historyManager = new SessionHistoryManager(10, 2);
+        Task task1 = new Task(1, "Task 1", "Desc", TaskStatus.NEW, null, null);
+        Task task2 = new Task(2, "Task 2", "Desc", TaskStatus.NEW, null, null);
+        try {
+            SessionHistoryManager.setCurrentSession("alice");
+            historyManager.add(task1);
+            SessionHistoryManager.setCurrentSession("bob");
+            historyManager.add(task2);
+
+            assertEquals(List.of(task2), historyManager.getHistory());
+            SessionHistoryManager.setCurrentSession("alice");
+            assertEquals(List.of(task1), historyManager.getHistory());
+
+            historyManager.remove(1);
+            assertTrue(historyManager.getHistory().isEmpty(), "Удалённая задача должна пропасть из всех сессий");
+
+            // Третья сессия вытесняет давно не использованную bob
+            SessionHistoryManager.setCurrentSession("carol");
+            historyManager.add(task1);
+            assertEquals(2, historyManager.getSessionCount());
+            SessionHistoryManager.setCurrentSession("bob");
+            assertTrue(historyManager.getHistory().isEmpty());
+        } finally {
+            SessionHistoryManager.clearCurrentSession();
+        }
+        assertTrue(historyManager.getHistory().isEmpty(), "Без сессии используется общая история");
+    }
+
+    @Test
+    void shouldReuseSnapshotUntilHistoryChanges() {
+        for (int i = 1; i <= 5; i++) {
+            historyManager.add(new Task(i, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+        }
+
+        List<Task> history = historyManager.getHistory();
+        assertSame(history, historyManager.getHistory(), "Без изменений снимок не должен перестраиваться");
+        assertThrows(UnsupportedOperationException.class, () -> history.remove(0));
+
+        historyManager.remove(3);
+        assertNotSame(history, historyManager.getHistory());
+        assertEquals(5, history.size(), "Выданный ранее снимок не должен меняться");
+    }
+
+    @Test
+    void shouldReturnLastViews() {
+        for (int i = 1; i <= 5; i++) {
+            historyManager.add(new Task(i, "Task " + i, "Desc", TaskStatus.NEW, null, null));
+        }
+
+        assertEquals(List.of(4, 5), historyManager.getHistory(2).stream().map(Task::getId).toList());
+        historyManager.getHistory();
+        assertEquals(List.of(3, 4, 5), historyManager.getHistory(3).stream().map(Task::getId).toList());
+        assertEquals(5, historyManager.getHistory(10).size());
+        assertThrows(IllegalArgumentException.class, () -> historyManager.getHistory(0));
+    }
+}
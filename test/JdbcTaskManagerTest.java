@@ -0,0 +1,68 @@
+import manager.HistoryManager;
+import manager.InMemoryHistoryManager;
+import manager.JdbcTaskManager;
+import manager.TaskManager;
+import manager.TaskValidationException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import util.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcTaskManagerTest extends TaskManagerTest {
+    private Path dir;
+
+    @Override
+    protected TaskManager createTaskManager(HistoryManager historyManager) {
+        try {
+            dir = Files.createTempDirectory("kanban-db");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new JdbcTaskManager(dir.resolve("kanban").toFile(), historyManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        ((JdbcTaskManager) taskManager).close();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    void shouldRestoreBoardAfterReopening() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start));
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.DONE, epic.getId(),
+                Duration.ofMinutes(30), start.plusHours(2)));
+        ((JdbcTaskManager) taskManager).close();
+
+        taskManager = new JdbcTaskManager(dir.resolve("kanban").toFile(), new InMemoryHistoryManager());
+        assertEquals(task.getStartTime(), taskManager.getTask(task.getId()).orElseThrow().getStartTime());
+        Epic loaded = taskManager.getEpic(epic.getId()).orElseThrow();
+        assertEquals(TaskStatus.DONE, loaded.getStatus());
+        assertEquals(start.plusHours(2), loaded.getStartTime());
+        assertTrue(loaded.aggregatesMatch(taskManager.getEpicSubtasks(epic.getId())));
+
+        assertThrows(TaskValidationException.class, () -> taskManager.createTask(new Task(0, "Overlap", "Desc",
+                TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(30))));
+        Task next = taskManager.createTask(new Task(0, "Next", "Desc", TaskStatus.NEW, null, null));
+        assertEquals(4, next.getId(), "Идентификаторы продолжаются после сохранённых");
+    }
+}
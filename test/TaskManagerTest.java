@@ -1,24 +1,33 @@
 import manager.*;
+import model.Epic;
+import model.Subtask;
 import model.Task;
+import model.Type;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import util.TaskStatus;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class TaskManagerTest {
-    private TaskManager taskManager;
-    private HistoryManager historyManager;
+    protected TaskManager taskManager;
+    protected HistoryManager historyManager;
 
     @BeforeEach
     void setUp() {
         historyManager = new InMemoryHistoryManager();
-        taskManager = new InMemoryTaskManager(historyManager);
+        taskManager = createTaskManager(historyManager);
+    }
+
+    protected TaskManager createTaskManager(HistoryManager historyManager) {
+        return new InMemoryTaskManager(historyManager);
     }
 
     @Test
@@ -73,6 +82,16 @@ class TaskManagerTest {
         }, "Должно быть выброшено исключение при пересечении задач");
     }
 
+    @Test
+    void shouldDetectOverlapBehindZeroLengthTaskWithSameStart() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        taskManager.createTask(new Task(0, "Zero", "Desc", TaskStatus.NEW, Duration.ZERO, start));
+        taskManager.createTask(new Task(0, "Hour", "Desc", TaskStatus.NEW, Duration.ofHours(1), start));
+
+        assertThrows(TaskValidationException.class, () -> taskManager.createTask(new Task(0, "Overlap", "Desc",
+                TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(30))));
+    }
+
     @Test
     void shouldReturnPrioritizedTasks() throws TaskValidationException {
         LocalDateTime now = LocalDateTime.now();
@@ -137,4 +156,306 @@ class TaskManagerTest {
         history = taskManager.getHistory();
         assertTrue(history.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldAllowAdjacentTasks() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        taskManager.createTask(new Task(0, "Task 1", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start));
+        taskManager.createTask(new Task(0, "Task 2", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start.plusHours(1)));
+        taskManager.createTask(new Task(0, "Task 3", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start.minusHours(1)));
+
+        assertEquals(3, taskManager.getPrioritizedTasks().size());
+        assertThrows(TaskValidationException.class, () -> taskManager.createTask(new Task(0, "Task 4", "Desc",
+                TaskStatus.NEW, Duration.ofHours(3), start.minusMinutes(30))));
+    }
+
+    @Test
+    void shouldNotTreatTaskUpdateAsOverlapWithItself() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start));
+        Task other = taskManager.createTask(new Task(0, "Other", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start.plusHours(2)));
+
+        taskManager.updateTask(new Task(task.getId(), "Task", "Desc", TaskStatus.IN_PROGRESS,
+                Duration.ofMinutes(90), start.plusMinutes(30)));
+
+        assertThrows(TaskValidationException.class, () -> taskManager.updateTask(new Task(other.getId(),
+                "Other", "Desc", TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(90))));
+        // Старый интервал задачи освобождён после переноса
+        taskManager.createTask(new Task(0, "Early", "Desc", TaskStatus.NEW,
+                Duration.ofMinutes(30), start));
+    }
+
+    @Test
+    void shouldReleaseTimeSlotAfterDeletion() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start));
+        taskManager.deleteTask(task.getId());
+        taskManager.createTask(new Task(0, "Task 2", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start));
+
+        taskManager.deleteAllTasks();
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW, epic.getId(),
+                Duration.ofHours(1), start));
+        taskManager.deleteEpic(epic.getId());
+
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+        taskManager.createTask(new Task(0, "Task 3", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start));
+    }
+
+    @Test
+    void shouldMaintainEpicAggregatesIncrementally() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertNull(epic.getStartTime());
+        assertEquals(Duration.ZERO, epic.getDuration());
+
+        Subtask first = taskManager.createSubtask(new Subtask(0, "Subtask 1", "Desc", TaskStatus.NEW,
+                epic.getId(), Duration.ofHours(1), start));
+        Subtask second = taskManager.createSubtask(new Subtask(0, "Subtask 2", "Desc", TaskStatus.DONE,
+                epic.getId(), Duration.ofHours(2), start.plusHours(3)));
+
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(start, epic.getStartTime());
+        assertEquals(start.plusHours(5), epic.getEndTime());
+        assertEquals(Duration.ofHours(3), epic.getDuration());
+
+        // Подзадачу меняют на месте и только потом передают в менеджер
+        first.setStatus(TaskStatus.DONE);
+        first.setStartTime(start.plusHours(1));
+        taskManager.updateSubtask(first);
+
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+        assertEquals(start.plusHours(1), epic.getStartTime());
+        assertTrue(epic.aggregatesMatch(taskManager.getEpicSubtasks(epic.getId())));
+
+        taskManager.deleteSubtask(second.getId());
+        assertEquals(start.plusHours(2), epic.getEndTime());
+        assertEquals(Duration.ofHours(1), epic.getDuration());
+        assertTrue(epic.aggregatesMatch(taskManager.getEpicSubtasks(epic.getId())));
+
+        taskManager.deleteAllSubtasks();
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertNull(epic.getEndTime());
+        assertTrue(epic.aggregatesMatch(taskManager.getEpicSubtasks(epic.getId())));
+    }
+
+    @Test
+    void shouldMoveSubtaskBetweenEpics() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Epic first = taskManager.createEpic(new Epic(0, "Epic 1", "Desc"));
+        Epic second = taskManager.createEpic(new Epic(0, "Epic 2", "Desc"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW,
+                first.getId(), Duration.ofHours(1), start));
+
+        taskManager.updateSubtask(new Subtask(subtask.getId(), "Subtask", "Desc", TaskStatus.DONE,
+                second.getId(), Duration.ofHours(1), start));
+
+        Epic from = taskManager.getEpic(first.getId()).orElseThrow();
+        Epic to = taskManager.getEpic(second.getId()).orElseThrow();
+        assertTrue(taskManager.getEpicSubtasks(first.getId()).isEmpty());
+        assertEquals(List.of(subtask.getId()),
+                taskManager.getEpicSubtasks(second.getId()).stream().map(Subtask::getId).toList());
+        assertTrue(from.aggregatesMatch(taskManager.getEpicSubtasks(first.getId())));
+        assertTrue(to.aggregatesMatch(taskManager.getEpicSubtasks(second.getId())));
+        assertEquals(TaskStatus.NEW, from.getStatus());
+        assertNull(from.getStartTime());
+        assertEquals(TaskStatus.DONE, to.getStatus());
+        assertEquals(start, to.getStartTime());
+        assertEquals(List.of(to), taskManager.getPrioritizedTasks(true).stream()
+                .filter(task -> task instanceof Epic).toList());
+
+        // Подзадачу переносят обратно, изменив её на месте
+        Subtask moved = taskManager.getSubtask(subtask.getId()).orElseThrow();
+        moved.setEpicId(first.getId());
+        taskManager.updateSubtask(moved);
+
+        assertTrue(taskManager.getEpicSubtasks(second.getId()).isEmpty());
+        assertEquals(1, taskManager.getEpicSubtasks(first.getId()).size());
+        assertTrue(from.aggregatesMatch(taskManager.getEpicSubtasks(first.getId())));
+        assertTrue(to.aggregatesMatch(taskManager.getEpicSubtasks(second.getId())));
+        assertEquals(TaskStatus.DONE, from.getStatus());
+        assertEquals(TaskStatus.NEW, to.getStatus());
+    }
+
+    @Test
+    void shouldIncludeEpicsInPrioritizedTasksByTheirTimeWindow() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task task = taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start.plusHours(1)));
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        Epic emptyEpic = taskManager.createEpic(new Epic(0, "Empty", "Desc"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW,
+                epic.getId(), Duration.ofHours(1), start.plusHours(3)));
+
+        assertEquals(List.of(task, subtask), taskManager.getPrioritizedTasks(false));
+        assertEquals(List.of(task, epic, subtask), taskManager.getPrioritizedTasks(true));
+        assertFalse(taskManager.getPrioritizedTasks(true).contains(emptyEpic));
+
+        taskManager.updateSubtask(new Subtask(subtask.getId(), "Subtask", "Desc", TaskStatus.NEW,
+                epic.getId(), Duration.ofHours(1), start));
+        assertEquals(start, epic.getStartTime());
+        assertEquals(start.plusHours(1), epic.getEndTime());
+        assertEquals(List.of(epic, subtask, task), taskManager.getPrioritizedTasks(true));
+
+        // Эпик без времени удаляется, пока в наборе есть эпики со временем
+        Subtask untimed = taskManager.createSubtask(new Subtask(0, "Untimed", "Desc", TaskStatus.NEW,
+                emptyEpic.getId(), null, null));
+        taskManager.deleteSubtask(untimed.getId());
+        taskManager.deleteEpic(emptyEpic.getId());
+        assertEquals(List.of(epic, subtask, task), taskManager.getPrioritizedTasks(true));
+    }
+
+    @Test
+    void shouldFindTasksPageByPage() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task(0, "Task " + i, "Desc", i % 2 == 0 ? TaskStatus.NEW : TaskStatus.DONE,
+                    Duration.ofMinutes(30), start.plusHours(i)));
+        }
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW,
+                epic.getId(), null, null));
+        taskManager.createSubtask(new Subtask(0, "Other", "Desc", TaskStatus.NEW, 0, null, null));
+
+        TaskQuery query = new TaskQuery();
+        query.setLimit(2);
+        List<Task> firstPage = taskManager.findTasks(query);
+        assertEquals(List.of(1, 2), firstPage.stream().map(Task::getId).toList());
+
+        query.setCursor(firstPage.get(1).getId());
+        assertEquals(List.of(3, 4), taskManager.findTasks(query).stream().map(Task::getId).toList());
+
+        TaskQuery filtered = new TaskQuery();
+        filtered.setStatus(TaskStatus.NEW);
+        filtered.setFrom(start.plusHours(1));
+        filtered.setTo(start.plusHours(4));
+        assertEquals(List.of(3), taskManager.findTasks(filtered).stream().map(Task::getId).toList());
+
+        TaskQuery byEpic = new TaskQuery();
+        byEpic.setEpicId(epic.getId());
+        assertEquals(List.of(subtask), taskManager.findSubtasks(byEpic));
+    }
+
+    @Test
+    void shouldApplyBatchAtomically() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Task existing = taskManager.createTask(new Task(0, "Existing", "Desc", TaskStatus.NEW,
+                Duration.ofHours(1), start));
+
+        // Вторая операция пересекается с первой из того же пакета — не применяется ничего
+        List<BatchOperation> conflicting = List.of(
+                BatchOperation.create(new Task(0, "A", "Desc", TaskStatus.NEW, Duration.ofHours(1), start.plusHours(2))),
+                BatchOperation.create(new Task(0, "B", "Desc", TaskStatus.NEW, Duration.ofHours(1),
+                        start.plusHours(2).plusMinutes(30))));
+        assertThrows(TaskValidationException.class, () -> taskManager.applyBatch(conflicting));
+        assertEquals(List.of(existing), taskManager.getAllTasks());
+
+        // Слот освобождается удалением внутри пакета и сразу занимается новой задачей
+        Epic epic = new Epic(0, "Epic", "Desc");
+        List<Task> results = taskManager.applyBatch(List.of(
+                BatchOperation.delete(Type.TASK, existing.getId()),
+                BatchOperation.create(new Task(0, "Replacement", "Desc", TaskStatus.NEW, Duration.ofHours(1), start)),
+                BatchOperation.create(epic)));
+
+        assertNull(results.get(0));
+        assertEquals("Replacement", taskManager.getAllTasks().get(0).getName());
+        assertEquals(List.of(epic), taskManager.getAllEpics());
+        assertThrows(TaskValidationException.class, () -> taskManager.createTask(new Task(0, "C", "Desc",
+                TaskStatus.NEW, Duration.ofHours(1), start.plusMinutes(30))));
+    }
+
+    @Test
+    void shouldNotFreeSlotWhenBatchDeletesIdOfAnotherType() throws TaskValidationException {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 0);
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW,
+                epic.getId(), Duration.ofHours(1), start));
+
+        // DELETE TASK с id подзадачи ничего не удаляет, и её слот остаётся занят
+        List<BatchOperation> operations = List.of(
+                BatchOperation.create(new Task(0, "A", "Desc", TaskStatus.NEW, null, null)),
+                BatchOperation.delete(Type.TASK, subtask.getId()),
+                BatchOperation.create(new Task(0, "B", "Desc", TaskStatus.NEW, Duration.ofHours(1),
+                        start.plusMinutes(30))));
+        assertThrows(TaskValidationException.class, () -> taskManager.applyBatch(operations));
+        assertTrue(taskManager.getAllTasks().isEmpty());
+        assertEquals(List.of(subtask), taskManager.getAllSubtasks());
+    }
+
+    @Test
+    void shouldRefreshCachedJsonAfterMutations() throws TaskValidationException {
+        Task task = taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        Task viewed = taskManager.getTask(task.getId()).orElseThrow();
+        assertTrue(json(viewed).contains("\"name\":\"Task\""));
+        assertTrue(json(taskManager.getEpic(epic.getId()).orElseThrow()).contains("\"status\":\"NEW\""));
+
+        // Задачу меняют на месте и передают в менеджер тем же экземпляром
+        viewed.setName("Renamed");
+        taskManager.updateTask(viewed);
+        assertTrue(json(taskManager.getTask(task.getId()).orElseThrow()).contains("\"name\":\"Renamed\""));
+
+        taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.DONE, epic.getId(), null, null));
+        assertTrue(json(taskManager.getEpic(epic.getId()).orElseThrow()).contains("\"status\":\"DONE\""));
+    }
+
+    @Test
+    void shouldBumpOnlyChangedCollectionVersions() throws TaskValidationException {
+        long tasks = taskManager.getVersion(Type.TASK);
+        long epics = taskManager.getVersion(Type.EPIC);
+        Task task = taskManager.createTask(new Task(0, "Task", "Desc", TaskStatus.NEW, null, null));
+        assertTrue(taskManager.getVersion(Type.TASK) > tasks);
+        assertEquals(epics, taskManager.getVersion(Type.EPIC));
+
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        long subtasks = taskManager.getVersion(Type.SUBTASK);
+        epics = taskManager.getVersion(Type.EPIC);
+        tasks = taskManager.getVersion(Type.TASK);
+        taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.NEW, epic.getId(), null, null));
+        assertTrue(taskManager.getVersion(Type.SUBTASK) > subtasks);
+        assertTrue(taskManager.getVersion(Type.EPIC) > epics, "Агрегаты эпика изменились");
+        assertEquals(tasks, taskManager.getVersion(Type.TASK));
+
+        long history = taskManager.getHistoryVersion();
+        taskManager.getTask(task.getId());
+        assertTrue(taskManager.getHistoryVersion() > history);
+    }
+
+    @Test
+    void shouldPublishChangeEventsIncludingEpicStatus() throws TaskValidationException {
+        ChangeFeed.Subscription subscription = taskManager.getChangeFeed().subscribe(-1, 64);
+        Epic epic = taskManager.createEpic(new Epic(0, "Epic", "Desc"));
+        Subtask subtask = taskManager.createSubtask(new Subtask(0, "Subtask", "Desc", TaskStatus.DONE,
+                epic.getId(), null, null));
+        taskManager.deleteSubtask(subtask.getId());
+        taskManager.getEpic(epic.getId());
+
+        List<String> names = new ArrayList<>();
+        List<String> data = new ArrayList<>();
+        for (ChangeFeed.Event event = subscription.poll(); event != null; event = subscription.poll()) {
+            names.add(event.getName());
+            data.add(new String(event.getData(), StandardCharsets.UTF_8));
+        }
+        assertEquals(List.of("epic.created", "subtask.created", "epic.updated", "subtask.deleted", "epic.updated"),
+                names, "Чтение не публикует событий");
+        assertTrue(data.get(2).contains("\"status\":\"DONE\""), "Статус эпика пересчитан: " + data.get(2));
+        assertEquals("{\"id\":" + subtask.getId() + "}", data.get(3));
+        assertTrue(data.get(4).contains("\"status\":\"NEW\""));
+        subscription.close();
+    }
+
+    private String json(Task task) {
+        return new String(taskManager.toJson(task), StandardCharsets.UTF_8);
+    }
+}